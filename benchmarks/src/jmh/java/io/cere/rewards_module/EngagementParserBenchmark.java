@@ -0,0 +1,155 @@
+package io.cere.rewards_module;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.cere.rewards_module.models.Engagement;
+import io.cere.rewards_module.models.EngagementDelta;
+import io.cere.rewards_module.models.EngagementParser;
+import io.cere.rewards_module.models.RewardItem;
+import io.cere.rewards_module.models.SocialTask;
+
+/**
+ * Cost of parsing engagements Widget publishes and pushes as deltas, against the previous
+ * {@code Engagement.fromJson} path which re-parsed the JSON of every engagement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EngagementParserBenchmark {
+
+    @Param({"5", "50"})
+    public int placements;
+
+    private String engagements;
+    private String deltas;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("{");
+        StringBuilder delta = new StringBuilder("[");
+        for (int i = 0; i < placements; i++) {
+            if (i > 0) {
+                json.append(',');
+                delta.append(',');
+            }
+            json.append("\"placement").append(i).append("\":").append(engagement(i));
+            delta.append("{\"placement\":\"placement").append(i).append("\",\"reward_items\":{\"updated\":[")
+                    .append(rewardItem(i)).append("],\"removed\":[").append(i + 1).append("]}}");
+        }
+        engagements = json.append('}').toString();
+        deltas = delta.append(']').toString();
+    }
+
+    @Benchmark
+    public Map<String, Engagement> parseEngagements() throws JSONException {
+        return EngagementParser.parseEngagements(engagements);
+    }
+
+    @Benchmark
+    public List<EngagementDelta> parseDeltas() throws JSONException {
+        return EngagementParser.parseDeltas(deltas);
+    }
+
+    @Benchmark
+    public Map<String, Engagement> parseEngagementsLegacy() throws JSONException {
+        JSONObject json = new JSONObject(engagements);
+        Map<String, Engagement> engagementMap = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            engagementMap.put(key, legacyEngagement(json.getString(key)));
+        }
+        return engagementMap;
+    }
+
+    // Engagement.fromJson before the streaming parser: every engagement, reward item and social
+    // task is serialized back to a string and parsed again into its own JSONObject
+    private static Engagement legacyEngagement(String json) throws JSONException {
+        Engagement e = new Engagement();
+
+        JSONObject jsonObject = new JSONObject(json);
+        e.setId(jsonObject.has("engagement_id") ? jsonObject.getInt("engagement_id") : 0);
+        e.setCampaignId(jsonObject.has("campaign_id") ? jsonObject.getInt("campaign_id") : 0);
+        e.setPlacementId(jsonObject.has("placement_id") ? jsonObject.getInt("placement_id") : 0);
+        e.setPlacementName(jsonObject.has("placement_name") ? jsonObject.getString("placement_name") : "");
+        e.setKey(jsonObject.has("key") ? jsonObject.getString("key") : "");
+
+        if (jsonObject.has("reward_items")) {
+            List<RewardItem> items = new ArrayList<>();
+            JSONArray rewardItems = jsonObject.getJSONArray("reward_items");
+            for (int i = 0; i < rewardItems.length(); i++) {
+                items.add(legacyRewardItem(rewardItems.getString(i)));
+            }
+            e.setRewardItems(items);
+        }
+
+        if (jsonObject.has("social_tasks")) {
+            List<SocialTask> items = new ArrayList<>();
+            JSONArray socialTasks = jsonObject.getJSONArray("social_tasks");
+            for (int i = 0; i < socialTasks.length(); i++) {
+                JSONObject task = new JSONObject(socialTasks.getString(i));
+                items.add(new SocialTask().setId(task.has("id") ? Integer.parseInt(task.getString("id")) : 0));
+            }
+            e.setSocialTasks(items);
+        }
+
+        return e;
+    }
+
+    private static RewardItem legacyRewardItem(String json) throws JSONException {
+        RewardItem ri = new RewardItem();
+
+        JSONObject jsonObject = new JSONObject(json);
+        ri.setId(jsonObject.has("id") ? Integer.parseInt(jsonObject.getString("id")) : 0);
+
+        if (jsonObject.has("params")) {
+            List<Map<String, String>> paramsList = new ArrayList<>();
+            JSONArray params = jsonObject.getJSONArray("params");
+            for (int i = 0; i < params.length(); i++) {
+                Map<String, String> param = new HashMap<>();
+                JSONObject p = params.getJSONObject(i);
+                String key = p.keys().next();
+                param.put(key, p.getString(key));
+                paramsList.add(param);
+            }
+            ri.setParams(paramsList);
+        }
+
+        return ri;
+    }
+
+    private static String engagement(int id) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append(rewardItem(id * 10 + i));
+        }
+        return "{\"engagement_id\":" + id + ",\"campaign_id\":3,\"placement_id\":" + id
+                + ",\"placement_name\":\"placement" + id + "\",\"key\":\"k" + id + "\""
+                + ",\"reward_items\":[" + items + "],\"social_tasks\":[{\"id\":1},{\"id\":2}]}";
+    }
+
+    private static String rewardItem(int id) {
+        return "{\"id\":" + id + ",\"params\":[{\"title\":\"Reward " + id + "\"},"
+                + "{\"image\":\"https://example.com/rewards/" + id + ".png\"},{\"price\":\"100\"}]}";
+    }
+}
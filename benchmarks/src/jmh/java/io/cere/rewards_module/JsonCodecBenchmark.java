@@ -0,0 +1,134 @@
+package io.cere.rewards_module;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.cere.rewards_module.models.ClaimedReward;
+import io.cere.rewards_module.models.JsonCodec;
+import io.cere.rewards_module.models.User;
+
+/**
+ * Cost of the JSON Widget and the host exchange over the bridge with {@link JsonCodec}, against
+ * the {@code toJson} and previous {@code fromJson} methods of models which build {@code JSONObject}
+ * trees. Allocation per operation is reported by the GC profiler configured in build.gradle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonCodecBenchmark {
+
+    @Param({"20", "500"})
+    public int rewards;
+
+    private List<ClaimedReward> claimedRewards;
+    private String claimedReward;
+    private String user;
+
+    @Setup
+    public void setUp() {
+        claimedRewards = new ArrayList<>(rewards);
+        for (int i = 0; i < rewards; i++) {
+            claimedRewards.add(new ClaimedReward()
+                    .setTitle("Reward \"" + i + "\"")
+                    .setImg("https://example.com/rewards/" + i + ".png")
+                    .setPrice(String.valueOf(i * 10))
+                    .setRedemptionInstructions("Show this code at the counter:\n" + i)
+                    .setAdditionalInfo(Arrays.asList("Valid for 30 days", "One per customer")));
+        }
+        claimedReward = JsonCodec.toJson(claimedRewards.get(0));
+        user = JsonCodec.toJson(new User().setId("42").setEmail("user@example.com").setToken("token")
+                .setExtras(Collections.singletonMap("name", "User")));
+    }
+
+    @Benchmark
+    public String writeClaimedRewards() {
+        return JsonCodec.toJson(claimedRewards);
+    }
+
+    @Benchmark
+    public String writeClaimedRewardsPage() {
+        return JsonCodec.toJson(claimedRewards, "1:" + rewards);
+    }
+
+    @Benchmark
+    public String writeClaimedRewardsTree() {
+        JSONArray json = new JSONArray();
+        for (ClaimedReward reward : claimedRewards) {
+            json.put(reward.toJson());
+        }
+        return json.toString();
+    }
+
+    @Benchmark
+    public ClaimedReward readClaimedReward() throws JSONException {
+        return JsonCodec.readClaimedReward(claimedReward);
+    }
+
+    @Benchmark
+    public User readUser() throws JSONException {
+        return JsonCodec.readUser(user);
+    }
+
+    @Benchmark
+    public ClaimedReward readClaimedRewardLegacy() throws JSONException {
+        JSONObject json = new JSONObject(claimedReward);
+        ClaimedReward reward = new ClaimedReward()
+                .setTitle(json.getString("title"))
+                .setImg(json.getString("img"))
+                .setPrice(json.getString("price"));
+
+        if (json.has("redemptionInstructions")) {
+            reward.setRedemptionInstructions(json.getString("redemptionInstructions"));
+        }
+
+        JSONArray additionalInfo = json.has("additionalInfo") ? json.getJSONArray("additionalInfo") : new JSONArray();
+        if (additionalInfo.length() != 0) {
+            List<String> info = new ArrayList<>();
+            for (int i = 0; i < additionalInfo.length(); i++) {
+                info.add(additionalInfo.get(i).toString());
+            }
+            reward.setAdditionalInfo(info);
+        }
+
+        return reward;
+    }
+
+    @Benchmark
+    public User readUserLegacy() throws JSONException {
+        JSONObject json = new JSONObject(user);
+        Map<String, String> extras = new HashMap<>();
+        if (json.has("extras")) {
+            JSONObject extrasJson = json.getJSONObject("extras");
+            Iterator<String> keys = extrasJson.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                extras.put(key, extrasJson.getString(key));
+            }
+        }
+
+        return new User()
+                .setId(json.optString("id"))
+                .setEmail(json.getString("email"))
+                .setToken(json.getString("token"))
+                .setPassword(json.optString("password"))
+                .setExtras(extras);
+    }
+}
@@ -0,0 +1,58 @@
+package io.cere.rewards_module;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the wallet operations Widget calls through the bridge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletCryptoBenchmark {
+
+    private static final String MNEMONIC = "abandon abandon abandon abandon abandon abandon "
+            + "abandon abandon abandon abandon abandon about";
+
+    private byte[] seed;
+    private byte[] privateKey;
+    private byte[] hash;
+
+    @Setup
+    public void setUp() throws Exception {
+        seed = WalletCrypto.mnemonicToSeed(MNEMONIC, "");
+        privateKey = WalletCrypto.derivePrivateKey(seed, "m/44'/60'/0'/0/0");
+        hash = MessageDigest.getInstance("SHA-256").digest("Satoshi Nakamoto".getBytes("UTF-8"));
+        // builds the generator table outside of measurements
+        WalletCrypto.publicKey(privateKey, true);
+    }
+
+    @Benchmark
+    public byte[] mnemonicToSeed() throws GeneralSecurityException {
+        return WalletCrypto.mnemonicToSeed(MNEMONIC, "");
+    }
+
+    @Benchmark
+    public byte[] derivePrivateKey() throws GeneralSecurityException {
+        return WalletCrypto.derivePrivateKey(seed, "m/44'/60'/0'/0/0");
+    }
+
+    @Benchmark
+    public byte[] publicKey() throws GeneralSecurityException {
+        return WalletCrypto.publicKey(privateKey, true);
+    }
+
+    @Benchmark
+    public byte[] sign() throws GeneralSecurityException {
+        return WalletCrypto.sign(privateKey, hash);
+    }
+}
@@ -0,0 +1,135 @@
+package io.cere.rewards_module;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.cere.rewards_module.RewardsModuleActivity.ActivityEvents;
+
+/**
+ * In-process dispatcher of {@link ActivityEvents} between {@code RewardsModule} and
+ * {@code RewardsModuleActivity}. Events may be posted from any thread and are always delivered on
+ * the main thread, synchronously when posted from it. Delivery latency is measured per event type
+ * and available through {@link RewardsModule#getActivityEventStats()}.
+ */
+public class ActivityEventDispatcher {
+
+    private final Map<ActivityEvents, List<Listener>> listeners = new EnumMap<>(ActivityEvents.class);
+    private final Map<ActivityEvents, Latency> latencies = new EnumMap<>(ActivityEvents.class);
+
+    ActivityEventDispatcher() {
+    }
+
+    /**
+     * Adds listener of given event. Must be called from the main thread.
+     */
+    void register(ActivityEvents event, Listener listener) {
+        List<Listener> eventListeners = listeners.get(event);
+        if (eventListeners == null) {
+            eventListeners = new ArrayList<>();
+            listeners.put(event, eventListeners);
+        }
+        eventListeners.add(listener);
+    }
+
+    /**
+     * Removes listener from all events. Must be called from the main thread.
+     */
+    void unregister(Listener listener) {
+        for (List<Listener> eventListeners : listeners.values()) {
+            eventListeners.remove(listener);
+        }
+    }
+
+    void post(ActivityEvents event) {
+        post(event, Bundle.EMPTY);
+    }
+
+    void post(ActivityEvents event, Bundle extras) {
+        long postedAt = System.nanoTime();
+        Workers.runOnMain(() -> dispatch(event, extras, postedAt));
+    }
+
+    /**
+     * Returns delivery latency by event name.
+     */
+    Map<String, Stats> stats() {
+        Map<String, Stats> stats = new HashMap<>();
+        synchronized (latencies) {
+            for (Map.Entry<ActivityEvents, Latency> entry : latencies.entrySet()) {
+                Latency latency = entry.getValue();
+                stats.put(entry.getKey().name(), new Stats(latency.count, latency.averageNanos(), latency.maxNanos));
+            }
+        }
+        return stats;
+    }
+
+    private void dispatch(ActivityEvents event, Bundle extras, long postedAt) {
+        List<Listener> eventListeners = listeners.get(event);
+        if (eventListeners != null) {
+            for (Listener listener : new ArrayList<>(eventListeners)) {
+                listener.onEvent(event, extras);
+            }
+        }
+
+        synchronized (latencies) {
+            Latency latency = latencies.get(event);
+            if (latency == null) {
+                latency = new Latency();
+                latencies.put(event, latency);
+            }
+            latency.record(System.nanoTime() - postedAt);
+        }
+    }
+
+    interface Listener {
+        void onEvent(ActivityEvents event, Bundle extras);
+    }
+
+    /**
+     * Delivery latency of events of the same type, from posting to the end of their listeners.
+     */
+    public static class Stats {
+        private final long count;
+        private final long averageNanos;
+        private final long maxNanos;
+
+        Stats(long count, long averageNanos, long maxNanos) {
+            this.count = count;
+            this.averageNanos = averageNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getAverageNanos() {
+            return averageNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+
+    private static class Latency {
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        long averageNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+    }
+}
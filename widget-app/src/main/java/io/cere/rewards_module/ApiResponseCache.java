@@ -0,0 +1,428 @@
+package io.cere.rewards_module;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of Widget API {@code GET} responses for the lifetime of a {@code RewardsModule},
+ * so reopening Widget in the same session doesn't refetch the same campaign data.
+ *
+ * <p>A response is served as is while it's fresh, served and revalidated in background while it's
+ * stale, and revalidated with {@code If-None-Match} before serving afterwards. Freshness comes from
+ * {@code Cache-Control: max-age} of the response or the configured default, and so does the time a
+ * stale response is served from {@code stale-while-revalidate}. Responses marked {@code no-cache}
+ * or {@code must-revalidate} are never served stale. Only responses which can be validated
+ * ({@code ETag}) or declare their lifetime ({@code max-age}) are cached; responses marked with
+ * {@code no-store} or {@code private}, varying by {@code *} or setting cookies never are. Responses are never shared between requests with different {@code Authorization} or
+ * {@code Cookie} headers or different values of headers listed in {@code Vary}. Responses are
+ * dropped when Widget sends any other request than {@code GET} to the same API and when user
+ * logs out.</p>
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ApiResponseCache {
+
+    private static final String TAG = "ApiResponseCache";
+    private static final long MAX_SIZE = 2 * 1024 * 1024;
+
+    private final String[] baseURLs;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> revalidating = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long size = 0;
+    private volatile long freshMillis = TimeUnit.SECONDS.toMillis(30);
+    private volatile long staleMillis = TimeUnit.MINUTES.toMillis(10);
+
+    ApiResponseCache(Env env) {
+        this(env.sdkURL(), env.widgetURL());
+    }
+
+    ApiResponseCache(String... baseURLs) {
+        this.baseURLs = baseURLs;
+    }
+
+    void setTtl(long freshMillis, long staleMillis) {
+        this.freshMillis = freshMillis;
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * Returns is given URL a Widget API endpoint.
+     */
+    boolean handles(String url) {
+        if (url == null) {
+            return false;
+        }
+
+        for (String baseURL : baseURLs) {
+            if (!baseURL.isEmpty() && url.startsWith(baseURL)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns a response for given API request, from memory when possible.
+     * Must not be called from the main thread.
+     * @return response or {@code null} if WebView should load the URL itself.
+     */
+    WebResourceResponse get(String url, Map<String, String> requestHeaders) {
+        Map<String, String> headers = new HashMap<>();
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                // HttpURLConnection decompresses responses only if it has requested compression itself
+                if (!header.getKey().equalsIgnoreCase("Accept-Encoding")) {
+                    headers.put(header.getKey(), header.getValue());
+                }
+            }
+        }
+
+        String cookie = CookieManager.getInstance().getCookie(url);
+        if (cookie != null) {
+            headers.put("Cookie", cookie);
+        }
+
+        String key = url + '\n' + header(headers, "Authorization") + '\n' + header(headers, "Cookie");
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(key);
+        }
+
+        Entry entry = cached != null && cached.matches(headers) ? cached : null;
+
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            long age = now - entry.storedAt;
+            if (age < entry.freshMillis) {
+                hits.incrementAndGet();
+                return entry.toResponse();
+            }
+
+            if (age < entry.freshMillis + (entry.staleMillis < 0 ? staleMillis : entry.staleMillis)) {
+                staleHits.incrementAndGet();
+                if (revalidating.add(key)) {
+                    Workers.io().execute(() -> {
+                        try {
+                            fetch(key, url, headers, entry);
+                        } finally {
+                            revalidating.remove(key);
+                        }
+                    });
+                }
+                return entry.toResponse();
+            }
+        }
+
+        Entry fetched = fetch(key, url, headers, entry);
+        return fetched == null ? null : fetched.toResponse();
+    }
+
+    /**
+     * Drops all responses of the API given URL belongs to, e.g. when Widget has sent a request
+     * which may modify data.
+     */
+    synchronized void invalidate(String url) {
+        for (String baseURL : baseURLs) {
+            if (baseURL.isEmpty() || !url.startsWith(baseURL)) {
+                continue;
+            }
+
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> entry = iterator.next();
+                if (entry.getKey().startsWith(baseURL)) {
+                    size -= entry.getValue().response.body.length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all responses, e.g. when user has logged out.
+     */
+    synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.get(), staleHits.get(), revalidations.get(), misses.get(), size);
+        }
+    }
+
+    private Entry fetch(String key, String url, Map<String, String> headers, Entry cached) {
+        if (cached != null && cached.etag != null) {
+            headers.put("If-None-Match", cached.etag);
+        }
+
+        Http.Response response;
+        try {
+            response = Http.get(url, headers);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to fetch " + url, e);
+            return null;
+        }
+
+        for (String setCookie : response.headers("Set-Cookie")) {
+            CookieManager.getInstance().setCookie(url, setCookie);
+        }
+
+        if (response.code == 304 && cached != null) {
+            revalidations.incrementAndGet();
+            Entry revalidated = new Entry(cached.response, System.currentTimeMillis(), freshness(response, cached.freshMillis),
+                    staleness(response, cached.staleMillis), cached.etag, cached.vary);
+            put(key, revalidated);
+            return revalidated;
+        }
+
+        if (response.code >= 300 && response.code < 400) {
+            // WebResourceResponse can't represent redirects
+            return null;
+        }
+
+        misses.incrementAndGet();
+        Entry entry = new Entry(response, System.currentTimeMillis(), freshness(response, freshMillis),
+                staleness(response, -1), response.header("ETag"), vary(response, headers));
+        if (response.code == 200 && isCacheable(response)) {
+            put(key, entry);
+        } else {
+            remove(key);
+        }
+        return entry;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        size += entry.response.body.length - (previous == null ? 0 : previous.response.body.length);
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > MAX_SIZE && iterator.hasNext()) {
+            size -= iterator.next().response.body.length;
+            iterator.remove();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            size -= previous.response.body.length;
+        }
+    }
+
+    private static boolean isCacheable(Http.Response response) {
+        if (response.header("Set-Cookie") != null || "*".equals(response.header("Vary"))) {
+            return false;
+        }
+
+        String cacheControl = response.header("Cache-Control");
+        cacheControl = cacheControl == null ? "" : cacheControl.toLowerCase();
+        if (cacheControl.contains("no-store") || cacheControl.contains("private")) {
+            return false;
+        }
+
+        return response.header("ETag") != null || cacheControl.contains("max-age=");
+    }
+
+    /**
+     * Returns values of request headers the response varies by.
+     */
+    private static Map<String, String> vary(Http.Response response, Map<String, String> requestHeaders) {
+        String vary = response.header("Vary");
+        if (vary == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (String name : vary.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                values.put(name, header(requestHeaders, name));
+            }
+        }
+        return values;
+    }
+
+    private static long freshness(Http.Response response, long defaultMillis) {
+        Map<String, String> cacheControl = cacheControl(response);
+        if (cacheControl == null) {
+            return defaultMillis;
+        }
+        if (cacheControl.containsKey("no-cache")) {
+            return 0;
+        }
+        return seconds(cacheControl.get("max-age"), defaultMillis);
+    }
+
+    /**
+     * Returns for how long the response may be served stale, {@code -1} for the configured time.
+     */
+    private static long staleness(Http.Response response, long defaultMillis) {
+        Map<String, String> cacheControl = cacheControl(response);
+        if (cacheControl == null) {
+            return defaultMillis;
+        }
+        if (cacheControl.containsKey("no-cache") || cacheControl.containsKey("must-revalidate")) {
+            return 0;
+        }
+        return seconds(cacheControl.get("stale-while-revalidate"), defaultMillis);
+    }
+
+    /**
+     * Returns {@code Cache-Control} directives with their values or {@code null} if there are none.
+     */
+    private static Map<String, String> cacheControl(Http.Response response) {
+        String cacheControl = response.header("Cache-Control");
+        if (cacheControl == null) {
+            return null;
+        }
+
+        Map<String, String> directives = new HashMap<>();
+        for (String directive : cacheControl.toLowerCase().split(",")) {
+            int separator = directive.indexOf('=');
+            if (separator < 0) {
+                directives.put(directive.trim(), "");
+            } else {
+                directives.put(directive.substring(0, separator).trim(), directive.substring(separator + 1).trim());
+            }
+        }
+        return directives;
+    }
+
+    private static long seconds(String value, long defaultMillis) {
+        if (value == null) {
+            return defaultMillis;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return defaultMillis;
+        }
+    }
+
+    private static String header(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return "";
+    }
+
+    private static class Entry {
+        final Http.Response response;
+        final long storedAt;
+        final long freshMillis;
+        // -1 for the configured time
+        final long staleMillis;
+        final String etag;
+        final Map<String, String> vary;
+
+        Entry(Http.Response response, long storedAt, long freshMillis, long staleMillis, String etag, Map<String, String> vary) {
+            this.response = response;
+            this.storedAt = storedAt;
+            this.freshMillis = freshMillis;
+            this.staleMillis = staleMillis;
+            this.etag = etag;
+            this.vary = vary;
+        }
+
+        /**
+         * Returns can the response be served to a request with given headers.
+         */
+        boolean matches(Map<String, String> requestHeaders) {
+            for (Map.Entry<String, String> header : vary.entrySet()) {
+                if (!header.getValue().equals(header(requestHeaders, header.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        WebResourceResponse toResponse() {
+            return new WebResourceResponse(response.mimeType(), response.charset(), response.code,
+                    response.code < 400 ? "OK" : "Error", response.resourceHeaders(), new ByteArrayInputStream(response.body));
+        }
+    }
+
+    /**
+     * Snapshot of Widget API cache usage.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long staleHits;
+        private final long revalidations;
+        private final long misses;
+        private final long size;
+
+        Stats(long hits, long staleHits, long revalidations, long misses, long size) {
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.revalidations = revalidations;
+            this.misses = misses;
+            this.size = size;
+        }
+
+        /**
+         * @return number of fresh responses served from memory.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return number of stale responses served from memory while revalidated in background.
+         */
+        public long getStaleHits() {
+            return staleHits;
+        }
+
+        /**
+         * @return number of responses confirmed by server as not modified.
+         */
+        public long getRevalidations() {
+            return revalidations;
+        }
+
+        /**
+         * @return number of responses downloaded in full.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return total size of cached response bodies in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", staleHits=" + staleHits + ", revalidations=" + revalidations
+                    + ", misses=" + misses + ", size=" + size;
+        }
+    }
+}
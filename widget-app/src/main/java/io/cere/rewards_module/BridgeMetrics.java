@@ -0,0 +1,289 @@
+package io.cere.rewards_module;
+
+import com.github.funler.jsbridge.BridgeHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Timing, payload size and error counters of calls crossing the bridge between Widget and
+ * {@code RewardsModule}: every registered {@code BridgeHandler} and every call to
+ * {@code window.CRBWidget}.
+ *
+ * <p>Every finished call is reported to {@link RewardsModule.OnBridgeCallHandler} and aggregated
+ * into per-call latency histograms available with {@link RewardsModule#getBridgeStats()}.</p>
+ */
+public class BridgeMetrics {
+
+    private final RewardsModule module;
+    private final Map<String, Histogram> histograms = new HashMap<>();
+
+    BridgeMetrics(RewardsModule module) {
+        this.module = module;
+    }
+
+    /**
+     * Returns given handler wrapped with instrumentation. Duration is measured until handler
+     * responds to Widget, so asynchronous handlers are measured as a whole.
+     */
+    BridgeHandler wrap(String name, BridgeHandler handler) {
+        return (context, data, function) -> {
+            long startedAt = System.nanoTime();
+            int requestSize = data == null ? 0 : data.length();
+            AtomicBoolean finished = new AtomicBoolean(false);
+
+            try {
+                handler.handler(context, data, response -> {
+                    if (finished.compareAndSet(false, true)) {
+                        record(new Call(name, Direction.JS_TO_JAVA, System.nanoTime() - startedAt,
+                                requestSize, response == null ? 0 : response.length(), null));
+                    }
+                    function.onCallBack(response);
+                });
+            } catch (RuntimeException e) {
+                if (finished.compareAndSet(false, true)) {
+                    record(new Call(name, Direction.JS_TO_JAVA, System.nanoTime() - startedAt, requestSize, 0, e));
+                }
+                throw e;
+            }
+        };
+    }
+
+    void record(Call call) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(call.getName());
+            if (histogram == null) {
+                histogram = new Histogram();
+                histograms.put(call.getName(), histogram);
+            }
+            histogram.record(call);
+        }
+
+        module.onBridgeCallHandler.handle(call);
+    }
+
+    /**
+     * Counts a call which hasn't responded in time and was answered with a fallback.
+     */
+    void timeout(String name) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram();
+                histograms.put(name, histogram);
+            }
+            histogram.timeouts++;
+        }
+    }
+
+    Map<String, Stats> stats() {
+        Map<String, Stats> stats = new HashMap<>();
+        synchronized (histograms) {
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                stats.put(entry.getKey(), entry.getValue().stats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Direction of a bridge call.
+     */
+    public enum Direction {
+        JS_TO_JAVA, JAVA_TO_JS
+    }
+
+    /**
+     * Single finished bridge call.
+     */
+    public static class Call {
+        private final String name;
+        private final Direction direction;
+        private final long durationNanos;
+        private final int requestSize;
+        private final int responseSize;
+        private final Throwable error;
+
+        Call(String name, Direction direction, long durationNanos, int requestSize, int responseSize, Throwable error) {
+            this.name = name;
+            this.direction = direction;
+            this.durationNanos = durationNanos;
+            this.requestSize = requestSize;
+            this.responseSize = responseSize;
+            this.error = error;
+        }
+
+        /**
+         * @return handler or Widget method name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * @return length of request payload in characters.
+         */
+        public int getRequestSize() {
+            return requestSize;
+        }
+
+        /**
+         * @return length of response payload in characters.
+         */
+        public int getResponseSize() {
+            return responseSize;
+        }
+
+        /**
+         * @return error of the call or {@code null} if it succeeded.
+         */
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Aggregated statistics of calls with the same name. Percentiles are approximated with
+     * exponential buckets (within 19%).
+     */
+    public static class Stats {
+        private final long count;
+        private final long errors;
+        private final long timeouts;
+        private final long requestSize;
+        private final long responseSize;
+        private final long p50Nanos;
+        private final long p95Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        Stats(long count, long errors, long timeouts, long requestSize, long responseSize, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+            this.count = count;
+            this.errors = errors;
+            this.timeouts = timeouts;
+            this.requestSize = requestSize;
+            this.responseSize = responseSize;
+            this.p50Nanos = p50Nanos;
+            this.p95Nanos = p95Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return number of calls answered with a fallback because host handler hasn't responded in time.
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return total length of request payloads in characters.
+         */
+        public long getRequestSize() {
+            return requestSize;
+        }
+
+        /**
+         * @return total length of response payloads in characters.
+         */
+        public long getResponseSize() {
+            return responseSize;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP95Nanos() {
+            return p95Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count +
+                    ", errors=" + errors +
+                    ", timeouts=" + timeouts +
+                    ", p50Nanos=" + p50Nanos +
+                    ", p95Nanos=" + p95Nanos +
+                    ", p99Nanos=" + p99Nanos +
+                    ", maxNanos=" + maxNanos +
+                    "}";
+        }
+    }
+
+    /**
+     * Histogram with 4 buckets per power of two.
+     */
+    private static class Histogram {
+        private static final int BUCKETS_PER_POWER = 4;
+
+        private final long[] buckets = new long[64 * BUCKETS_PER_POWER];
+        private long count = 0;
+        private long errors = 0;
+        private long timeouts = 0;
+        private long requestSize = 0;
+        private long responseSize = 0;
+        private long maxNanos = 0;
+
+        void record(Call call) {
+            long nanos = Math.max(1, call.getDurationNanos());
+            buckets[bucket(nanos)]++;
+            count++;
+            errors += call.getError() == null ? 0 : 1;
+            requestSize += call.getRequestSize();
+            responseSize += call.getResponseSize();
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        Stats stats() {
+            return new Stats(count, errors, timeouts, requestSize, responseSize,
+                    percentile(0.50), percentile(0.95), percentile(0.99), maxNanos);
+        }
+
+        private long percentile(double p) {
+            long rank = (long) Math.ceil(count * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(maxNanos, upperBound(i));
+                }
+            }
+            return maxNanos;
+        }
+
+        private static int bucket(long nanos) {
+            double log = Math.log(nanos) / Math.log(2);
+            return Math.min(64 * BUCKETS_PER_POWER - 1, (int) (log * BUCKETS_PER_POWER));
+        }
+
+        private static long upperBound(int bucket) {
+            return (long) Math.pow(2, (bucket + 1) / (double) BUCKETS_PER_POWER);
+        }
+    }
+}
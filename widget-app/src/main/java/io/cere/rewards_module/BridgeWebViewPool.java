@@ -0,0 +1,78 @@
+package io.cere.rewards_module;
+
+import android.os.Looper;
+import android.util.Log;
+
+import com.github.funler.jsbridge.BridgeWebView;
+
+/**
+ * Keeps one spare, fully configured {@code BridgeWebView} which is created when the main thread
+ * becomes idle, so swapping WebView on reload or logout doesn't block UI with WebView construction.
+ * {@code RewardsModule} calls {@link #prewarm()} once Widget has initialized, so the spare doesn't
+ * compete with the initial page load, yet is ready for the first logout or reload.
+ *
+ * <p>All methods except {@link #prewarm()} must be called from the main thread.</p>
+ */
+class BridgeWebViewPool {
+
+    private static final String TAG = "BridgeWebViewPool";
+
+    private final Factory factory;
+    private BridgeWebView spare;
+    private boolean scheduled = false;
+    private boolean released = false;
+
+    BridgeWebViewPool(Factory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Schedules creation of a spare instance on next main thread idle.
+     */
+    void prewarm() {
+        Workers.runOnMain(() -> {
+            if (spare != null || scheduled || released) {
+                return;
+            }
+
+            scheduled = true;
+            Looper.myQueue().addIdleHandler(() -> {
+                scheduled = false;
+                if (spare == null && !released) {
+                    Log.d(TAG, "Pre-warming BridgeWebView");
+                    spare = factory.create();
+                }
+                return false;
+            });
+        });
+    }
+
+    /**
+     * Returns the spare instance if it's ready or creates a new one.
+     */
+    BridgeWebView acquire() {
+        BridgeWebView webView = spare;
+        spare = null;
+
+        if (webView == null) {
+            webView = factory.create();
+        }
+
+        return webView;
+    }
+
+    /**
+     * Destroys the spare instance, if any, and stops pre-warming.
+     */
+    void release() {
+        released = true;
+        if (spare != null) {
+            spare.destroy();
+            spare = null;
+        }
+    }
+
+    interface Factory {
+        BridgeWebView create();
+    }
+}
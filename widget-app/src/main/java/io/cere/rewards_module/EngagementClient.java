@@ -0,0 +1,64 @@
+package io.cere.rewards_module;
+
+import android.net.Uri;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+
+import io.cere.rewards_module.models.Engagement;
+import io.cere.rewards_module.models.EngagementParser;
+
+/**
+ * Native client of the Widget backend which loads engagements of an app without
+ * {@code BridgeWebView}, used by {@link LoadingMode#HEADLESS}. The endpoint is expected to return
+ * the same placement to engagement map as {@code window.CRBWidget.__getEngagements()}.
+ *
+ * <p>The client keeps {@code ETag} of the last loaded engagements, so following fetches (a repeated
+ * {@code init} or reload after logout) download them only if they have changed.</p>
+ */
+class EngagementClient {
+
+    private final String url;
+    private String etag;
+
+    EngagementClient(String endpoint, String appId, Env env, String version) {
+        this.url = Uri.parse(endpoint).buildUpon()
+                .appendQueryParameter("appId", appId)
+                .appendQueryParameter("platform", "android")
+                .appendQueryParameter("v", version)
+                .appendQueryParameter("env", env.name().toLowerCase())
+                .build()
+                .toString();
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * Loads engagements. Must not be called from the main thread.
+     * @return engagements or {@code null} if they haven't changed since the previous call.
+     */
+    Map<String, Engagement> fetch() throws IOException, JSONException {
+        Map<String, String> headers = etag == null ? null : Collections.singletonMap("If-None-Match", etag);
+        Http.Response response = Http.get(url, headers);
+
+        if (response.code == 304) {
+            return null;
+        }
+
+        if (response.code != 200) {
+            throw new IOException("Unexpected response " + response.code + " of " + url);
+        }
+
+        String charset = response.charset();
+        Map<String, Engagement> engagements = EngagementParser.parseEngagements(
+                new String(response.body, Charset.forName(charset == null ? "UTF-8" : charset)));
+        etag = response.header("ETag");
+        return engagements;
+    }
+}
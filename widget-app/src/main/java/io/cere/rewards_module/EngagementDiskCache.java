@@ -0,0 +1,237 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.cere.rewards_module.models.Engagement;
+import io.cere.rewards_module.models.RewardItem;
+import io.cere.rewards_module.models.SocialTask;
+
+/**
+ * Compact binary store of the last known engagements for an app ID and {@link Env}, which lets
+ * {@code RewardsModule} answer {@code hasItems} before the widget has loaded.
+ */
+class EngagementDiskCache {
+
+    private static final String TAG = "EngagementDiskCache";
+    private static final String DIR = "engagements";
+    private static final int FORMAT_VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long MAX_FILE_SIZE = 4 * 1024 * 1024;
+
+    // Least number of bytes a stored element takes, used to reject corrupted counts
+    private static final int MIN_ENGAGEMENT_SIZE = 4 * 3 + 4 * 2 + 4 * 2;
+    private static final int MIN_PLACEMENT_SIZE = 4 + MIN_ENGAGEMENT_SIZE;
+    private static final int MIN_REWARD_ITEM_SIZE = 4 + 4;
+    private static final int MIN_PARAM_SIZE = 4;
+    private static final int MIN_PARAM_ENTRY_SIZE = 4 + 4;
+    private static final int MIN_SOCIAL_TASK_SIZE = 4;
+
+    private final File file;
+
+    EngagementDiskCache(Context context, String appId, Env env) {
+        File dir = new File(context.getFilesDir(), DIR);
+        this.file = new File(dir, env.name().toLowerCase() + "_" + Util.sha1(appId));
+    }
+
+    /**
+     * Reads stored engagements.
+     * @param ttlMillis maximum age of stored engagements.
+     * @return engagements or {@code null} if there are no fresh ones.
+     */
+    Map<String, Engagement> read(long ttlMillis) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            return readFile(ttlMillis);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to read stored engagements", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private Map<String, Engagement> readFile(long ttlMillis) throws IOException {
+        long length = file.length();
+        if (length > MAX_FILE_SIZE) {
+            throw new IOException("Stored engagements take " + length + " bytes");
+        }
+
+        // counts and lengths are checked against the bytes left, so the file is read at once
+        byte[] bytes = new byte[(int) length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+
+        long savedAt = in.readLong();
+        if (System.currentTimeMillis() - savedAt > ttlMillis) {
+            Log.d(TAG, "Stored engagements are expired");
+            return null;
+        }
+
+        int count = readCount(in, MIN_PLACEMENT_SIZE);
+        Map<String, Engagement> engagements = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String placement = readString(in);
+            engagements.put(placement, readEngagement(in));
+        }
+
+        return engagements;
+    }
+
+    /**
+     * Stores given engagements. Should be called from background thread.
+     */
+    void write(Map<String, Engagement> engagements) {
+        // Modules of the same app and environment share the file
+        synchronized (EngagementDiskCache.class) {
+            writeLocked(engagements);
+        }
+    }
+
+    private void writeLocked(Map<String, Engagement> engagements) {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Unable to create " + dir);
+            return;
+        }
+
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(engagements.size());
+            for (Map.Entry<String, Engagement> entry : engagements.entrySet()) {
+                writeString(out, entry.getKey());
+                writeEngagement(out, entry.getValue());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to store engagements", e);
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Unable to replace " + file);
+            tmp.delete();
+        }
+    }
+
+    private static void writeEngagement(DataOutputStream out, Engagement e) throws IOException {
+        out.writeInt(e.getId());
+        out.writeInt(e.getCampaignId());
+        out.writeInt(e.getPlacementId());
+        writeString(out, e.getPlacementName());
+        writeString(out, e.getKey());
+
+        out.writeInt(e.getRewardItems().size());
+        for (RewardItem item : e.getRewardItems()) {
+            out.writeInt(item.getId());
+            out.writeInt(item.getParams().size());
+            for (Map<String, String> param : item.getParams()) {
+                out.writeInt(param.size());
+                for (Map.Entry<String, String> p : param.entrySet()) {
+                    writeString(out, p.getKey());
+                    writeString(out, p.getValue());
+                }
+            }
+        }
+
+        out.writeInt(e.getSocialTasks().size());
+        for (SocialTask task : e.getSocialTasks()) {
+            out.writeInt(task.getId());
+        }
+    }
+
+    private static Engagement readEngagement(DataInputStream in) throws IOException {
+        Engagement e = new Engagement()
+                .setId(in.readInt())
+                .setCampaignId(in.readInt())
+                .setPlacementId(in.readInt())
+                .setPlacementName(readString(in))
+                .setKey(readString(in));
+
+        int itemsCount = readCount(in, MIN_REWARD_ITEM_SIZE);
+        List<RewardItem> items = new ArrayList<>(itemsCount);
+        for (int i = 0; i < itemsCount; i++) {
+            RewardItem item = new RewardItem().setId(in.readInt());
+
+            int paramsCount = readCount(in, MIN_PARAM_SIZE);
+            List<Map<String, String>> params = new ArrayList<>(paramsCount);
+            for (int j = 0; j < paramsCount; j++) {
+                int size = readCount(in, MIN_PARAM_ENTRY_SIZE);
+                Map<String, String> param = new HashMap<>(size * 2);
+                for (int k = 0; k < size; k++) {
+                    param.put(readString(in), readString(in));
+                }
+                params.add(param);
+            }
+
+            items.add(item.setParams(params));
+        }
+        e.setRewardItems(items);
+
+        int tasksCount = readCount(in, MIN_SOCIAL_TASK_SIZE);
+        List<SocialTask> tasks = new ArrayList<>(tasksCount);
+        for (int i = 0; i < tasksCount; i++) {
+            tasks.add(new SocialTask().setId(in.readInt()));
+        }
+        e.setSocialTasks(tasks);
+
+        return e;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new IOException("String of " + length + " bytes exceeds the file");
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static int readCount(DataInputStream in, int minElementSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || (long) count * minElementSize > in.available()) {
+            throw new IOException("Count of " + count + " exceeds the file");
+        }
+        return count;
+    }
+}
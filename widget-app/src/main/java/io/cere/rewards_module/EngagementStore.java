@@ -0,0 +1,59 @@
+package io.cere.rewards_module;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.cere.rewards_module.models.Engagement;
+import io.cere.rewards_module.models.EngagementDelta;
+
+/**
+ * Holds an immutable snapshot of placement to {@link Engagement}. Snapshots are built by writers and
+ * published atomically, so readers from any thread never see a partially populated map and never
+ * need a lock. Writers are serialized.
+ */
+class EngagementStore {
+
+    private volatile Map<String, Engagement> snapshot = Collections.emptyMap();
+
+    Map<String, Engagement> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces current snapshot with a copy of given engagements.
+     */
+    synchronized void publish(Map<String, Engagement> engagements) {
+        snapshot = Collections.unmodifiableMap(new HashMap<>(engagements));
+    }
+
+    /**
+     * Applies given deltas on top of current snapshot. Only changed placements are rebuilt.
+     */
+    synchronized void apply(List<EngagementDelta> deltas) {
+        Map<String, Engagement> next = new HashMap<>(snapshot);
+
+        for (EngagementDelta delta : deltas) {
+            if (delta.isRemoved()) {
+                next.remove(delta.getPlacement());
+            } else {
+                next.put(delta.getPlacement(), delta.applyTo(next.get(delta.getPlacement())));
+            }
+        }
+
+        snapshot = Collections.unmodifiableMap(next);
+    }
+
+    boolean hasItems(String placement) {
+        Engagement engagement = snapshot.get(placement);
+
+        return engagement != null &&
+                (!engagement.getRewardItems().isEmpty() || !engagement.getSocialTasks().isEmpty());
+    }
+
+    Set<String> placements() {
+        return snapshot.keySet();
+    }
+}
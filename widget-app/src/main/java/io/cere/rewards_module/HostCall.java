@@ -0,0 +1,132 @@
+package io.cere.rewards_module;
+
+import android.util.Log;
+
+import com.github.funler.jsbridge.CallBackFunction;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pending call of a host handler (e.g. {@link RewardsModule.OnGetUserByEmailHandler}) made on
+ * behalf of Widget. The call responds to Widget exactly once: with the host result, or with the
+ * fallback response when the deadline passes, the handler throws or the call is cancelled because
+ * Widget was closed. Late host results are ignored.
+ */
+class HostCall {
+
+    private static final String TAG = "HostCall";
+
+    private final String name;
+    private final CallBackFunction function;
+    private final String fallback;
+    private final RewardsModule module;
+    private final AtomicBoolean done = new AtomicBoolean(false);
+    private final Runnable timeout = this::timeout;
+    private final AtomicReference<Runnable> onFinish = new AtomicReference<>();
+
+    HostCall(String name, CallBackFunction function, String fallback, RewardsModule module) {
+        this.name = name;
+        this.function = function;
+        this.fallback = fallback;
+        this.module = module;
+    }
+
+    /**
+     * Runs given task on executor and starts the deadline.
+     * @param timeoutMillis deadline of the call, {@code 0} to wait for the host forever.
+     */
+    void start(Executor executor, long timeoutMillis, Task task) {
+        if (timeoutMillis > 0) {
+            Workers.main().postDelayed(timeout, timeoutMillis);
+        }
+
+        try {
+            executor.execute(() -> {
+                if (done.get()) {
+                    return;
+                }
+
+                try {
+                    task.run(this);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Host handler " + name + " has failed", e);
+                    finish(fallback);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Host handler " + name + " was rejected", e);
+            finish(fallback);
+        }
+    }
+
+    /**
+     * Responds to Widget with the host result, unless the call has already finished.
+     */
+    void complete(String response) {
+        finish(response);
+    }
+
+    /**
+     * Responds to Widget with the fallback response, unless the call has already finished.
+     */
+    void cancel() {
+        if (finish(fallback)) {
+            Log.d(TAG, "Cancelled " + name);
+        }
+    }
+
+    /**
+     * Responds to Widget with the fallback response because the host result can't be obtained,
+     * unless the call has already finished.
+     */
+    void fail() {
+        finish(fallback);
+    }
+
+    /**
+     * Runs given hook once the call has finished in any way, immediately if it already has.
+     */
+    void onFinish(Runnable hook) {
+        onFinish.set(hook);
+        if (done.get()) {
+            runOnFinish();
+        }
+    }
+
+    boolean isDone() {
+        return done.get();
+    }
+
+    private void timeout() {
+        if (finish(fallback)) {
+            Log.w(TAG, "Host handler " + name + " has timed out");
+            module.getBridgeMetrics().timeout(name);
+        }
+    }
+
+    private boolean finish(String response) {
+        if (!done.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Workers.main().removeCallbacks(timeout);
+        module.hostCallFinished(this);
+        Workers.runOnMain(() -> function.onCallBack(response));
+        runOnFinish();
+        return true;
+    }
+
+    private void runOnFinish() {
+        Runnable hook = onFinish.getAndSet(null);
+        if (hook != null) {
+            hook.run();
+        }
+    }
+
+    interface Task {
+        void run(HostCall call);
+    }
+}
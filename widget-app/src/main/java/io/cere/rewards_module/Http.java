@@ -0,0 +1,149 @@
+package io.cere.rewards_module;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Minimal blocking HTTP client used for native fetches outside of the {@code BridgeWebView}.
+ * Never call it from the main thread.
+ */
+final class Http {
+
+    private static final int TIMEOUT_MS = 15000;
+
+    private Http() {}
+
+    static Response get(String url, Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        connection.setUseCaches(false);
+
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+
+        try {
+            int code = connection.getResponseCode();
+            InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            byte[] body = in == null ? new byte[0] : readFully(in);
+
+            Map<String, List<String>> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() != null && !header.getValue().isEmpty()) {
+                    responseHeaders.put(header.getKey(), header.getValue());
+                }
+            }
+
+            return new Response(code, responseHeaders, body);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    static class Response {
+        final int code;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        /**
+         * @param headers all values of response headers, with case insensitive names.
+         */
+        Response(int code, Map<String, List<String>> headers, byte[] body) {
+            this.code = code;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * Returns all values of given header joined with commas, or {@code null} if it's missing.
+         * Use {@link #headers(String)} for headers which can't be joined, like {@code Set-Cookie}.
+         */
+        String header(String name) {
+            List<String> values = headers.get(name);
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+
+            StringBuilder value = new StringBuilder(values.get(0));
+            for (int i = 1; i < values.size(); i++) {
+                value.append(", ").append(values.get(i));
+            }
+            return value.toString();
+        }
+
+        /**
+         * Returns all values of given header in order they were received.
+         */
+        List<String> headers(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? Collections.<String>emptyList() : values;
+        }
+
+        /**
+         * Returns headers describing the resource itself, to be passed to WebView along with the body.
+         * Cookies are dropped, they are passed to {@code CookieManager} when the response is received,
+         * and so are the headers of the transfer since the body is decoded already.
+         */
+        Map<String, String> resourceHeaders() {
+            Map<String, String> resourceHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (String name : headers.keySet()) {
+                resourceHeaders.put(name, header(name));
+            }
+            resourceHeaders.remove("Set-Cookie");
+            resourceHeaders.remove("Content-Length");
+            resourceHeaders.remove("Content-Encoding");
+            resourceHeaders.remove("Transfer-Encoding");
+            return resourceHeaders;
+        }
+
+        String mimeType() {
+            String contentType = header("Content-Type");
+            if (contentType == null) {
+                return "application/octet-stream";
+            }
+
+            int separator = contentType.indexOf(';');
+            return (separator == -1 ? contentType : contentType.substring(0, separator)).trim();
+        }
+
+        String charset() {
+            String contentType = header("Content-Type");
+            if (contentType == null) {
+                return null;
+            }
+
+            for (String part : contentType.split(";")) {
+                String param = part.trim();
+                if (param.toLowerCase().startsWith("charset=")) {
+                    return param.substring("charset=".length()).replace("\"", "");
+                }
+            }
+
+            return null;
+        }
+    }
+}
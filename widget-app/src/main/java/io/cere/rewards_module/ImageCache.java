@@ -0,0 +1,358 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU disk cache of reward artwork shared by all {@code RewardsModule} instances.
+ *
+ * <p>Images referenced by engagements and claimed rewards are prefetched in background as soon as
+ * they are known and served to the {@code BridgeWebView} by {@link WidgetWebViewClient}, so opening
+ * Widget doesn't download them again. Only those images are intercepted; any other request, and a
+ * known image which isn't on disk yet, is left to WebView with its own headers, cookies and CORS
+ * handling. Cached images are served with the headers of the origin. When total size exceeds the
+ * limit, least recently used images are removed.</p>
+ */
+public class ImageCache {
+
+    private static final String TAG = "ImageCache";
+    private static final String DIR = "widget_images";
+    private static final String META_SUFFIX = ".meta";
+    private static final String[] EXTENSIONS = {".png", ".jpg", ".jpeg", ".gif", ".webp", ".bmp"};
+    static final long DEFAULT_MAX_SIZE = 20 * 1024 * 1024;
+
+    private static volatile ImageCache INSTANCE;
+
+    private final File dir;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> known = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long size = 0;
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private boolean loaded = false;
+
+    private ImageCache(Context context) {
+        this.dir = new File(context.getCacheDir(), DIR);
+    }
+
+    static ImageCache get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ImageCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ImageCache(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Sets maximum total size of cached images, removing least recently used ones if needed.
+     */
+    void setMaxSize(long maxSize) {
+        Workers.io().execute(() -> {
+            synchronized (this) {
+                this.maxSize = maxSize;
+                ensureLoaded();
+                trim();
+            }
+        });
+    }
+
+    /**
+     * Returns is given URL an image of engagements or claimed rewards, which may be cached.
+     */
+    boolean handles(String url) {
+        return url != null && known.contains(url);
+    }
+
+    /**
+     * Downloads given images in background unless they are cached already.
+     */
+    void prefetch(Collection<String> urls) {
+        for (String url : urls) {
+            if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+                continue;
+            }
+
+            known.add(url);
+            if (inFlight.add(url)) {
+                Workers.io().execute(() -> {
+                    try {
+                        String key = Util.sha1(url);
+                        if (!contains(key)) {
+                            fetch(url, key);
+                        }
+                    } finally {
+                        inFlight.remove(url);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns a response for given image from disk. Must not be called from the main thread.
+     * @return response or {@code null} if the image isn't cached (yet) and WebView should load it.
+     */
+    WebResourceResponse get(String url) {
+        String key = Util.sha1(url);
+        if (contains(key)) {
+            try {
+                File body = new File(dir, key);
+                Meta meta = Meta.read(new File(dir, key + META_SUFFIX));
+                WebResourceResponse response = WidgetWebViewClient.response(200, meta.mimeType, null, meta.headers,
+                        new FileInputStream(body));
+                body.setLastModified(System.currentTimeMillis());
+                hits.incrementAndGet();
+                return response;
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read cached " + url, e);
+                remove(key);
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.get(), misses.get(), size, maxSize);
+        }
+    }
+
+    private void fetch(String url, String key) {
+        try {
+            Http.Response response = Http.get(url, null);
+            if (response.code == 200 && response.mimeType().startsWith("image/")) {
+                store(key, response);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to fetch " + url, e);
+        }
+    }
+
+    private synchronized boolean contains(String key) {
+        ensureLoaded();
+        return entries.get(key) != null;
+    }
+
+    private synchronized void store(String key, Http.Response response) throws IOException {
+        ensureLoaded();
+        if (response.body.length > maxSize) {
+            return;
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        File body = new File(dir, key);
+        File meta = new File(dir, key + META_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(body)) {
+            out.write(response.body);
+        }
+        Map<String, String> headers = response.resourceHeaders();
+        // prefetched without Origin, so the server may leave CORS headers out, and without
+        // credentials, which makes the image readable from any origin
+        if (!headers.containsKey("Access-Control-Allow-Origin")) {
+            headers.put("Access-Control-Allow-Origin", "*");
+        }
+        new Meta(response.mimeType(), headers).write(meta);
+
+        Long previous = entries.put(key, (long) response.body.length);
+        size += response.body.length - (previous == null ? 0 : previous);
+        trim();
+    }
+
+    private synchronized void remove(String key) {
+        Long length = entries.remove(key);
+        if (length != null) {
+            size -= length;
+        }
+        new File(dir, key).delete();
+        new File(dir, key + META_SUFFIX).delete();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            new File(dir, eldest.getKey()).delete();
+            new File(dir, eldest.getKey() + META_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Restores LRU order from modification time of stored images.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> images = new ArrayList<>();
+        for (File file : files) {
+            if (!file.getName().endsWith(META_SUFFIX) && new File(dir, file.getName() + META_SUFFIX).exists()) {
+                images.add(file);
+            } else if (!file.getName().endsWith(META_SUFFIX)) {
+                file.delete();
+            }
+        }
+
+        File[] sorted = images.toArray(new File[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File image : sorted) {
+            entries.put(image.getName(), image.length());
+            size += image.length();
+        }
+        trim();
+    }
+
+    private static class Meta {
+        // images stored before headers were kept are downloaded again
+        private static final int FORMAT = 2;
+
+        final String mimeType;
+        final Map<String, String> headers;
+
+        Meta(String mimeType, Map<String, String> headers) {
+            this.mimeType = mimeType;
+            this.headers = headers;
+        }
+
+        void write(File file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(mimeType);
+                out.writeInt(headers.size());
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    out.writeUTF(header.getKey());
+                    out.writeUTF(header.getValue());
+                }
+            }
+        }
+
+        static Meta read(File file) throws IOException {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                if (in.readInt() != FORMAT) {
+                    throw new IOException("Unsupported format of " + file);
+                }
+
+                String mimeType = in.readUTF();
+                int count = in.readInt();
+                Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (int i = 0; i < count; i++) {
+                    headers.put(in.readUTF(), in.readUTF());
+                }
+                return new Meta(mimeType, headers);
+            }
+        }
+    }
+
+    static boolean isImage(String url) {
+        String path = Uri.parse(url).getPath();
+        if (path == null) {
+            return false;
+        }
+
+        path = path.toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (path.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Snapshot of image cache usage.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long size;
+        private final long maxSize;
+
+        Stats(long hits, long misses, long size, long maxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return number of images served from disk.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return number of engagement images Widget requested which weren't cached yet.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return share of images served from disk, from 0 to 1.
+         */
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        /**
+         * @return total size of cached images in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return maximum total size of cached images in bytes.
+         */
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses + ", size=" + size + "/" + maxSize;
+        }
+    }
+}
@@ -2,45 +2,50 @@ package io.cere.rewards_module;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.net.Uri;
+import android.util.Base64;
 import android.util.Log;
 import android.widget.Toast;
 
 import com.github.funler.jsbridge.BridgeHandler;
 import com.github.funler.jsbridge.CallBackFunction;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
 import io.cere.rewards_module.models.RMSData;
 
 import static io.cere.rewards_module.RewardsModule.KEY_REFERRER;
-import static io.cere.rewards_module.RewardsModule.KEY_STORAGE;
+import static io.cere.rewards_module.RewardsModule.StorageKeys.MNEMONIC;
+import static io.cere.rewards_module.RewardsModule.StorageKeys.PRIVATE_KEY;
 
 public enum JS2JavaHandlers {
-    logout((Context context, String data, CallBackFunction function) -> {
+    logout((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         Log.d(getTag(), "logout");
-        RewardsModule.getInstance().logout();
+        module.logout();
         function.onCallBack("true");
     }),
 
-    show((Context context, String data, CallBackFunction function) -> {
+    show((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         Log.d(getTag(), "show");
-        RewardsModule.getInstance().show();
+        module.show();
         function.onCallBack(null);
     }),
 
-    hide((Context context, String data, CallBackFunction function) -> {
+    hide((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         Log.d(getTag(), "hide");
-        RewardsModule.getInstance().hide();
+        module.hide();
         function.onCallBack(null);
     }),
 
-    initialized((Context context, String data, CallBackFunction function) -> {
+    initialized((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         try {
-            RewardsModule.getInstance().setInitialized(true, RMSData.fromJSON(data));
+            module.setInitialized(true, RMSData.fromJSON(data));
         } catch (JSONException e) {
             e.printStackTrace();
         } finally {
@@ -48,7 +53,7 @@ public enum JS2JavaHandlers {
         }
     }),
 
-    shareWith((Context context, String data, CallBackFunction function) -> {
+    shareWith((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         try {
             JSONObject jsonObject = new JSONObject(data);
             JSONObject app = jsonObject.getJSONObject("app");
@@ -62,10 +67,13 @@ public enum JS2JavaHandlers {
                 send.putExtra(Intent.EXTRA_TEXT, dataToShare);
                 send.setType("text/plain");
                 Intent chooser = Intent.createChooser(send, "Share");
+                // Widget may run in background, where context isn't an Activity
+                chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                 context.startActivity(chooser);
             } else {
                 Intent googlePlay = new Intent(Intent.ACTION_VIEW);
                 googlePlay.setData(Uri.parse("market://details?id=" + packageName));
+                googlePlay.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                 context.startActivity(googlePlay);
             }
         } catch (JSONException e) {
@@ -75,53 +83,211 @@ public enum JS2JavaHandlers {
         function.onCallBack(null);
     }),
 
-    share((Context context, String data, CallBackFunction function) -> {
+    share((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         Intent send = new Intent(Intent.ACTION_SEND);
         send.putExtra(Intent.EXTRA_TEXT, data);
         send.setType("text/plain");
 
         Intent chooser = Intent.createChooser(send, "Share");
+        chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         context.startActivity(chooser);
         function.onCallBack(null);
     }),
 
-    getReferralsInfo((Context context, String data, CallBackFunction function) -> {
-        SharedPreferences prefsReader = context.getSharedPreferences(KEY_STORAGE, Context.MODE_PRIVATE);
-        String userId = prefsReader.getString(KEY_REFERRER, "");
+    getReferralsInfo((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        WidgetStorage storage = WidgetStorage.get(context);
+        storage.execute(() -> {
+            String userId = storage.getString(KEY_REFERRER, "");
 
-        if (!userId.isEmpty()) {
-            context.getSharedPreferences(KEY_STORAGE, Context.MODE_PRIVATE)
-                    .edit()
-                    .remove(KEY_REFERRER)
-                    .apply();
-        }
+            if (!userId.isEmpty()) {
+                storage.remove(KEY_REFERRER);
+            }
+
+            Workers.runOnMain(() -> function.onCallBack(userId));
+        });
+    }),
+
+    // replaces the SharedPreferences-backed handlers of JsBridge, secure keys are kept encrypted
+    getNativeStorageItem((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        WidgetStorage storage = WidgetStorage.get(context);
+        storage.execute(() -> {
+            String value = null;
+            try {
+                String key = new JSONArray(data).getString(0);
+                value = RewardsModule.StorageKeys.isSecure(key)
+                        ? SecureKeyStore.get(context).get(key)
+                        : storage.getString(key, null);
+            } catch (JSONException | GeneralSecurityException e) {
+                e.printStackTrace();
+            }
 
-        function.onCallBack(userId);
+            String response = value;
+            Workers.runOnMain(() -> function.onCallBack(response));
+        });
     }),
 
-    showNativeMessage((Context context, String data, CallBackFunction function) -> {
+    setNativeStorageItem((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        WidgetStorage storage = WidgetStorage.get(context);
+        storage.execute(() -> {
+            try {
+                JSONArray args = new JSONArray(data);
+                String key = args.getString(0);
+                String value = args.isNull(1) ? null : args.get(1).toString();
+                if (RewardsModule.StorageKeys.isSecure(key)) {
+                    SecureKeyStore.get(context).put(key, value);
+                } else {
+                    storage.putString(key, value);
+                }
+            } catch (JSONException | GeneralSecurityException e) {
+                e.printStackTrace();
+            }
+
+            Workers.runOnMain(() -> function.onCallBack(null));
+        });
+    }),
+
+    showNativeMessage((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         Toast.makeText(context, data, Toast.LENGTH_LONG).show();
         function.onCallBack(null);
     }),
 
-    inputFocused((Context context, String data, CallBackFunction function) -> {
-        RewardsModule.getInstance().inputFocused(Float.parseFloat(data));
+    inputFocused((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        module.inputFocused(Float.parseFloat(data));
+        function.onCallBack(null);
+    }),
+
+    inputBlurred((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        module.inputBlurred();
         function.onCallBack(null);
     }),
 
-    inputBlurred((Context context, String data, CallBackFunction function) -> {
-        RewardsModule.getInstance().inputBlurred();
+    secureStorageSet((RewardsModule module, Context context, String data, CallBackFunction function) -> Workers.io().execute(() -> {
+        String result = "true";
+        try {
+            JSONObject jsonObject = new JSONObject(data);
+            SecureKeyStore.get(context).put(jsonObject.getString("key"),
+                    jsonObject.isNull("value") ? null : jsonObject.getString("value"));
+        } catch (JSONException | GeneralSecurityException | IllegalArgumentException e) {
+            e.printStackTrace();
+            result = "false";
+        }
+
+        String response = result;
+        Workers.runOnMain(() -> function.onCallBack(response));
+    })),
+
+    secureStorageGet((RewardsModule module, Context context, String data, CallBackFunction function) -> Workers.io().execute(() -> {
+        String result = null;
+        try {
+            result = SecureKeyStore.get(context).get(data);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+
+        String response = result;
+        Workers.runOnMain(() -> function.onCallBack(response));
+    })),
+
+    secureStorageRemove((RewardsModule module, Context context, String data, CallBackFunction function) -> Workers.io().execute(() -> {
+        String result = "true";
+        try {
+            SecureKeyStore.get(context).remove(data);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            result = "false";
+        }
+
+        String response = result;
+        Workers.runOnMain(() -> function.onCallBack(response));
+    })),
+
+    deriveKey((RewardsModule module, Context context, String data, CallBackFunction function) -> Workers.io().execute(() -> {
+        String result = null;
+        try {
+            JSONObject jsonObject = new JSONObject(data);
+            byte[] salt = Base64.decode(jsonObject.getString("salt"), Base64.NO_WRAP);
+            byte[] derived = SecureKeyStore.get(context).deriveKey(jsonObject.getString("password"), salt,
+                    jsonObject.optInt("iterations", 10000), jsonObject.optInt("length", 256));
+            result = Base64.encodeToString(derived, Base64.NO_WRAP);
+        } catch (JSONException | GeneralSecurityException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+
+        String response = result;
+        Workers.runOnMain(() -> function.onCallBack(response));
+    })),
+
+    // the private key derived from the stored mnemonic stays in secure storage, only its public key crosses the bridge
+    deriveWalletKey((RewardsModule module, Context context, String data, CallBackFunction function) -> WalletCrypto.executor().execute(() -> {
+        String result = null;
+        try {
+            JSONObject jsonObject = new JSONObject(data);
+            SecureKeyStore store = SecureKeyStore.get(context);
+            String mnemonic = store.get(MNEMONIC.desc());
+            if (mnemonic == null) {
+                throw new GeneralSecurityException("No mnemonic in secure storage");
+            }
+
+            byte[] seed = WalletCrypto.mnemonicToSeed(mnemonic, jsonObject.optString("passphrase"));
+            byte[] privateKey = WalletCrypto.derivePrivateKey(seed, jsonObject.getString("path"));
+            store.put(PRIVATE_KEY.desc(), Util.toHex(privateKey));
+
+            JSONObject keys = new JSONObject();
+            keys.put("publicKey", Util.toHex(WalletCrypto.publicKey(privateKey, jsonObject.optBoolean("compressed", true))));
+            result = keys.toString();
+            Arrays.fill(seed, (byte) 0);
+            Arrays.fill(privateKey, (byte) 0);
+        } catch (JSONException | GeneralSecurityException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+
+        String response = result;
+        Workers.runOnMain(() -> function.onCallBack(response));
+    })),
+
+    signHash((RewardsModule module, Context context, String data, CallBackFunction function) -> WalletCrypto.executor().execute(() -> {
+        String result = null;
+        try {
+            JSONObject jsonObject = new JSONObject(data);
+            String privateKey = SecureKeyStore.get(context).get(PRIVATE_KEY.desc());
+            if (privateKey == null) {
+                throw new GeneralSecurityException("No private key in secure storage");
+            }
+
+            result = Util.toHex(WalletCrypto.sign(Util.fromHex(privateKey), Util.fromHex(jsonObject.getString("hash"))));
+        } catch (JSONException | GeneralSecurityException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+
+        String response = result;
+        Workers.runOnMain(() -> function.onCallBack(response));
+    })),
+
+    engagementsUpdated((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        Log.d(getTag(), "engagementsUpdated");
+        if (data != null && !data.equals("null")) {
+            module.updateEngagements(data);
+        }
         function.onCallBack(null);
     });
 
-    private BridgeHandler handler;
+    private ModuleBridgeHandler handler;
 
-    JS2JavaHandlers(BridgeHandler handler) {
+    JS2JavaHandlers(ModuleBridgeHandler handler) {
         this.handler = handler;
     }
 
+    public BridgeHandler handler(RewardsModule module) {
+        return (Context context, String data, CallBackFunction function) -> handler.handler(module, context, data, function);
+    }
+
+    /**
+     * @deprecated handlers are bound to their module, use {@link #handler(RewardsModule)}. Resolves
+     * the most recently created module when called.
+     */
+    @Deprecated
     public BridgeHandler handler() {
-        return handler;
+        return (Context context, String data, CallBackFunction function) -> handler.handler(RewardsModuleRegistry.last(), context, data, function);
     }
 
     private static boolean isAppAvailable(Context context, String packageName) {
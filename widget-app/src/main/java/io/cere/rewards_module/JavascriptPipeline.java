@@ -0,0 +1,139 @@
+package io.cere.rewards_module;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.github.funler.jsbridge.BridgeWebView;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered Java to JS command pipeline. Calls to {@code window.CRBWidget} issued within one frame are
+ * coalesced into a single {@code evaluateJavascript} batch which is executed on the main thread.
+ * Every command may have a callback receiving its result and is reported to {@link BridgeMetrics},
+ * every batch is reported to {@link RewardsModule.OnJavascriptBatchHandler}.
+ */
+class JavascriptPipeline {
+
+    private static final String TAG = "JavascriptPipeline";
+    private static final String ERROR_KEY = "__crbError";
+
+    private final RewardsModule module;
+    private final List<Command> pending = new ArrayList<>();
+    private boolean scheduled = false;
+
+    JavascriptPipeline(RewardsModule module) {
+        this.module = module;
+    }
+
+    /**
+     * Adds call of {@code window.CRBWidget.method(data)} to the next batch.
+     * @param method widget method name.
+     * @param data raw JS arguments or {@code null}.
+     * @param callback optional result callback, invoked on the main thread with JSON representation
+     *                 of returned value or {@code null}, and the error thrown by Widget if any.
+     */
+    void enqueue(String method, String data, ResultCallback callback) {
+        Log.d(TAG, method + "(" + (data == null ? "" : data) + ")");
+
+        synchronized (this) {
+            pending.add(new Command(method, data, callback));
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+
+        Workers.runOnMain(() -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> flush()));
+    }
+
+    private void flush() {
+        List<Command> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        StringBuilder script = new StringBuilder("(function(){var w=window.CRBWidget,r=[];");
+        for (Command command : batch) {
+            script.append("try{r.push(w.")
+                    .append(command.method)
+                    .append('(')
+                    .append(command.data == null ? "" : command.data)
+                    .append("));}catch(e){r.push({" + ERROR_KEY + ":String(e)});}");
+        }
+        script.append("return r;})()");
+
+        BridgeWebView webView = module.getBridgeWebView();
+        if (webView == null) {
+            Log.w(TAG, "Dropping " + batch.size() + " calls of released module");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        webView.evaluateJavascript(script.toString(), value -> {
+            long finishedAt = System.nanoTime();
+            dispatchResults(batch, value, finishedAt);
+            module.onJavascriptBatchHandler.handle(batch.size(),
+                    startedAt - batch.get(0).enqueuedAt, finishedAt - startedAt);
+        });
+    }
+
+    private void dispatchResults(List<Command> batch, String value, long finishedAt) {
+        JSONArray results = null;
+        try {
+            if (value != null && !value.equals("null")) {
+                results = new JSONArray(value);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Unexpected batch result: " + value);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            Object result = results == null || results.isNull(i) ? null : results.opt(i);
+
+            Throwable error = null;
+            if (result instanceof JSONObject && ((JSONObject) result).has(ERROR_KEY)) {
+                error = new RuntimeException(((JSONObject) result).optString(ERROR_KEY));
+                result = null;
+            }
+
+            String response = result == null ? null : result.toString();
+            module.getBridgeMetrics().record(new BridgeMetrics.Call(command.method, BridgeMetrics.Direction.JAVA_TO_JS,
+                    finishedAt - command.enqueuedAt, command.data == null ? 0 : command.data.length(),
+                    response == null ? 0 : response.length(), error));
+
+            if (command.callback != null) {
+                command.callback.handle(response, error);
+            }
+        }
+    }
+
+    interface ResultCallback {
+        void handle(String result, Throwable error);
+    }
+
+    private static class Command {
+        final String method;
+        final String data;
+        final ResultCallback callback;
+        final long enqueuedAt = System.nanoTime();
+
+        Command(String method, String data, ResultCallback callback) {
+            this.method = method;
+            this.data = data;
+            this.callback = callback;
+        }
+    }
+}
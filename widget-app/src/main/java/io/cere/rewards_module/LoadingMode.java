@@ -0,0 +1,25 @@
+package io.cere.rewards_module;
+
+/**
+ * Defines when {@code RewardsModule} creates its {@code BridgeWebView} and loads Widget.
+ */
+public enum LoadingMode {
+    /**
+     * WebView is created in constructor and Widget is loaded right on {@code init}.
+     */
+    EAGER,
+
+    /**
+     * WebView is created and Widget is loaded on first {@code show}, {@code prefetch}, question
+     * about engagements which can't be answered from the ones stored on device, or after the
+     * configured idle delay.
+     */
+    LAZY,
+
+    /**
+     * Same as {@link #LAZY}, but engagements are loaded from Widget backend directly on {@code init},
+     * so {@code hasItems} and {@code getPlacements} are answered without WebView, which is created
+     * only on {@code show} or {@code prefetch}.
+     */
+    HEADLESS
+}
@@ -0,0 +1,14 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+
+import com.github.funler.jsbridge.CallBackFunction;
+
+/**
+ * {@code BridgeHandler} which also receives the {@link RewardsModule} owning the
+ * {@code BridgeWebView} the call came from.
+ */
+interface ModuleBridgeHandler {
+
+    void handler(RewardsModule module, Context context, String data, CallBackFunction function);
+}
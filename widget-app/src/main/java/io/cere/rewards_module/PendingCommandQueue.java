@@ -0,0 +1,116 @@
+package io.cere.rewards_module;
+
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded, thread-safe queue of calls to Widget postponed until {@code RewardsModule} is initialized.
+ *
+ * <p>Calls offered with the same coalescing key replace each other (last write wins), so only the
+ * final value is replayed, at the position of the latest call. When the queue exceeds its limit,
+ * the oldest calls are dropped.</p>
+ */
+class PendingCommandQueue {
+
+    static final int DEFAULT_LIMIT = 256;
+
+    private static final String TAG = "PendingCommandQueue";
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Entry> latest = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile int limit = DEFAULT_LIMIT;
+
+    void setLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive, but was " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Postpones given handler.
+     * @param key coalescing key or {@code null} if handler must always be replayed.
+     * @param handler call to replay.
+     */
+    void offer(String key, RewardsModule.Java2JSHandler handler) {
+        Entry entry = new Entry(key, handler);
+        queue.offer(entry);
+        size.incrementAndGet();
+
+        if (key != null) {
+            Entry previous = latest.put(key, entry);
+            if (previous != null && previous.take() != null) {
+                size.decrementAndGet();
+                queue.remove(previous);
+            }
+        }
+
+        while (size.get() > limit) {
+            Entry oldest = queue.poll();
+            if (oldest == null) {
+                break;
+            }
+
+            if (oldest.take() != null) {
+                size.decrementAndGet();
+                forget(oldest);
+                Log.w(TAG, "Queue limit " + limit + " exceeded, dropped " + (oldest.key == null ? "call" : oldest.key));
+            }
+        }
+    }
+
+    /**
+     * Drops the postponed handler of given coalescing key, if any.
+     */
+    void remove(String key) {
+        Entry entry = latest.remove(key);
+        if (entry != null && entry.take() != null) {
+            size.decrementAndGet();
+            queue.remove(entry);
+        }
+    }
+
+    /**
+     * Replays all postponed handlers in order on the calling thread.
+     */
+    void drain() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            RewardsModule.Java2JSHandler handler = entry.take();
+            if (handler != null) {
+                size.decrementAndGet();
+                forget(entry);
+                handler.handle();
+            }
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private void forget(Entry entry) {
+        if (entry.key != null) {
+            latest.remove(entry.key, entry);
+        }
+    }
+
+    private static class Entry {
+        final String key;
+        final AtomicReference<RewardsModule.Java2JSHandler> handler;
+
+        Entry(String key, RewardsModule.Java2JSHandler handler) {
+            this.key = key;
+            this.handler = new AtomicReference<>(handler);
+        }
+
+        RewardsModule.Java2JSHandler take() {
+            return handler.getAndSet(null);
+        }
+    }
+}
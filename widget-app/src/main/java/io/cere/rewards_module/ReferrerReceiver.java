@@ -3,12 +3,10 @@ package io.cere.rewards_module;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
 
 import static io.cere.rewards_module.RewardsModule.KEY_REFERRER;
-import static io.cere.rewards_module.RewardsModule.KEY_STORAGE;
 
 public class ReferrerReceiver extends BroadcastReceiver {
 
@@ -37,9 +35,11 @@ public class ReferrerReceiver extends BroadcastReceiver {
             String referrer = extras.get(KEY_REFERRER).toString();
 
             Log.d(TAG, "referrer = " + referrer);
-            SharedPreferences.Editor prefs = context.getSharedPreferences(KEY_STORAGE, Context.MODE_PRIVATE).edit();
-            prefs.putString(KEY_REFERRER, referrer);
-            prefs.apply();
+            // the process may be killed right after the broadcast, so keep it alive until written
+            PendingResult result = goAsync();
+            WidgetStorage storage = WidgetStorage.get(context);
+            storage.putString(KEY_REFERRER, referrer);
+            storage.flush(result::finish);
         }
     }
 }
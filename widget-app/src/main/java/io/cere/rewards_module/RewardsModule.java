@@ -2,27 +2,41 @@ package io.cere.rewards_module;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.content.MutableContextWrapper;
 import android.graphics.Color;
+import android.os.Bundle;
+import android.os.Looper;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
 
 import com.github.funler.jsbridge.BridgeWebView;
+import com.github.funler.jsbridge.CallBackFunction;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.cere.rewards_module.models.ClaimedReward;
 import io.cere.rewards_module.models.Engagement;
+import io.cere.rewards_module.models.EngagementParser;
+import io.cere.rewards_module.models.RewardItem;
 import io.cere.rewards_module.models.User;
 import io.cere.rewards_module.models.RMSData;
+import io.cere.rewards_module.StartupTimeline.Phase;
 
 import static io.cere.rewards_module.RewardsModuleActivity.ActivityEvents.close_widget_view;
 import static io.cere.rewards_module.RewardsModuleActivity.ActivityEvents.initialized_widget_view;
@@ -51,7 +65,8 @@ import static io.cere.rewards_module.RewardsModuleActivity.ActivityEvents.input_
  * <p>That's enough for start loading {@code RewardsModule}, but note that {@code RewardsModule} still
  * remains hidden. Also, first load of {@code RewardsModule} takes a some time which depends on
  * network connection quality. That's why you need to init {@code RewardsModule} as soon as possible.
- * Next initializations after opening app again will be faster because of caching.
+ * Next initializations after opening app again will be faster because widget bundle is stored on
+ * device and revalidated in background, which also lets {@code RewardsModule} start offline.
  * </p>
  *
  * <p>If you want to show {@code RewardsModule} right after it has initialized, you can add listener
@@ -87,6 +102,7 @@ import static io.cere.rewards_module.RewardsModuleActivity.ActivityEvents.input_
  * @see OnSignInHandler
  * @see OnSignUpHandler
  * @see OnGetClaimedRewardsHandler
+ * @see OnGetClaimedRewardsPageHandler
  * @see OnGetUserByEmailHandler
  * @see OnInitializationHandler
  */
@@ -94,21 +110,55 @@ public class RewardsModule {
 
     static final String KEY_STORAGE = "storage";
     static final String KEY_REFERRER = "referrer";
+    static final int CLAIMED_REWARDS_PAGE_SIZE = 20;
+
+    static final String EXTRA_MODULE_ID = "io.cere.rewards_module.MODULE_ID";
 
     private static String TAG = "RewardsModule";
-    private static RewardsModule INSTANCE;
+
+    private final StartupTracer startupTracer = new StartupTracer();
+    private String id;
 
     private Env env = Env.PRODUCTION;
     private Mode mode = Mode.REWARDS;
-    private Map<String, Engagement> engagementMap = new HashMap<>();
+    private final EngagementStore engagementStore = new EngagementStore();
+    private EngagementDiskCache engagementCache;
+    private final ExecutorService engagementExecutor = Executors.newSingleThreadExecutor(Workers.threadFactory("rewards-engagements"));
+    private long engagementsCacheTtl = TimeUnit.DAYS.toMillis(1);
+    private static final long ENGAGEMENTS_PERSIST_DELAY_MS = 1000;
+    private volatile boolean engagementsDirty = false;
+    // hasItems and getPlacements checks made while stored engagements are read, guarded by itself
+    private final List<String> checksWhileReading = new ArrayList<>();
+    private boolean readingStoredEngagements = false;
+    private final Runnable persistEngagementsTask = () -> {
+        if (!engagementExecutor.isShutdown()) {
+            engagementExecutor.execute(this::persistEngagements);
+        }
+    };
 
     private String appId = "";
+    private boolean loadRequested = false;
+    private long lazyLoadDelay = -1;
+    private boolean headless = false;
+    private String engagementsEndpoint = null;
+    private EngagementClient engagementClient;
 
-    private boolean initialized = false;
-    private List<Java2JSHandler> java2JSHandlers = new ArrayList<>();
+    private volatile boolean initialized = false;
+    private final PendingCommandQueue pendingCommands = new PendingCommandQueue();
+    private final Set<String> prefetchedPlacements = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     private Context context;
     private BridgeWebView bridgeWebView;
+    private BridgeWebViewPool webViewPool = new BridgeWebViewPool(this::createWebView);
+    private WidgetBundleCache bundleCache;
+    private final ImageCache imageCache;
+    private ApiResponseCache apiCache;
+    private long apiCacheFreshMillis = TimeUnit.SECONDS.toMillis(30);
+    private long apiCacheStaleMillis = TimeUnit.MINUTES.toMillis(10);
+    private JavascriptPipeline javascriptPipeline = new JavascriptPipeline(this);
+    private final UserDataSync userDataSync = new UserDataSync(this);
+    private final ActivityEventDispatcher events = new ActivityEventDispatcher();
+    private final BridgeMetrics bridgeMetrics = new BridgeMetrics(this);
     private int widthPx = 0;
     private int heightPx = 0;
     private int topPx = -1;
@@ -122,19 +172,53 @@ public class RewardsModule {
     OnSignInHandler onSignInHandler = user -> setMode(Mode.REWARDS);
     OnSignUpHandler onSignUpHandler = user -> setMode(Mode.REWARDS);
     OnGetClaimedRewardsHandler onGetClaimedRewardsHandler = callback -> callback.handle(Collections.EMPTY_LIST);
+    OnGetClaimedRewardsPageHandler onGetClaimedRewardsPageHandler = this::getClaimedRewardsPage;
     OnGetUserByEmailHandler onGetUserByEmailHandler = (email, callback) -> callback.handle(false);
     OnInitializationHandler onInitializationHandler = () -> {};
+    OnJavascriptBatchHandler onJavascriptBatchHandler = (commands, queueNanos, evaluationNanos) -> {};
+    OnEngagementsChangedHandler onEngagementsChangedHandler = placements -> {};
+    OnBridgeCallHandler onBridgeCallHandler = call -> {};
+    OnStartupTimelineHandler onStartupTimelineHandler = timeline -> Log.d(TAG, "Startup " + timeline);
 
     private OnHideHandler onHideHandler = null;
 
+    private Executor hostExecutor = Runnable::run;
+    private long hostCallTimeout = TimeUnit.SECONDS.toMillis(10);
+    private final Set<HostCall> hostCalls = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile UserLookupCache userLookupCache;
+    private final AtomicInteger claimedRewardsSnapshots = new AtomicInteger();
+    private volatile ClaimedRewardsSnapshot claimedRewardsSnapshot;
+
     /**
      * Initializes a newly created {@code RewardsModule} object without initialization.
      * @param context Context - Interface to global information about an application environment.
      */
     public RewardsModule(Context context) {
-        this.context = context;
+        this.context = context.getApplicationContext();
+        WidgetStorage.get(context);
+        this.imageCache = ImageCache.get(context);
         configureWebView();
-        INSTANCE = this;
+        id = RewardsModuleRegistry.register(this);
+        startupTracer.endSection(Phase.CONSTRUCTOR);
+    }
+
+    /**
+     * Initializes a newly created {@code RewardsModule} object without initialization. With
+     * {@link LoadingMode#LAZY} or {@link LoadingMode#HEADLESS} the WebView isn't created until
+     * Widget is really needed, so the module is cheap to create e.g. in {@code Application.onCreate}.
+     * @param context Context - Interface to global information about an application environment.
+     * @param loadingMode when to create WebView and load Widget.
+     */
+    public RewardsModule(Context context, LoadingMode loadingMode) {
+        this.context = context.getApplicationContext();
+        this.headless = loadingMode == LoadingMode.HEADLESS;
+        WidgetStorage.get(context);
+        this.imageCache = ImageCache.get(context);
+        if (loadingMode == LoadingMode.EAGER) {
+            configureWebView();
+        }
+        id = RewardsModuleRegistry.register(this);
+        startupTracer.endSection(Phase.CONSTRUCTOR);
     }
 
     /**
@@ -145,11 +229,14 @@ public class RewardsModule {
      * @param heightInPercents desired height for {@code RewardsModule} in percents.
      */
     public RewardsModule(Context context, float widthInPercents, float heightInPercents) {
-        this.context = context;
+        this.context = context.getApplicationContext();
+        WidgetStorage.get(context);
+        this.imageCache = ImageCache.get(context);
         setWidth(widthInPercents);
         setHeight(heightInPercents);
         configureWebView();
-        INSTANCE = this;
+        id = RewardsModuleRegistry.register(this);
+        startupTracer.endSection(Phase.CONSTRUCTOR);
     }
 
     /**
@@ -162,17 +249,21 @@ public class RewardsModule {
      * @param leftInPercents desired left margin for {@code RewardsModule} in percents.
      */
     public RewardsModule(Context context, float widthInPercents, float heightInPercents, float topInPercents, float leftInPercents) {
-        this.context = context;
+        this.context = context.getApplicationContext();
+        WidgetStorage.get(context);
+        this.imageCache = ImageCache.get(context);
         setWidth(widthInPercents);
         setHeight(heightInPercents);
         setTop(topInPercents);
         setLeft(leftInPercents);
         configureWebView();
-        INSTANCE = this;
+        id = RewardsModuleRegistry.register(this);
+        startupTracer.endSection(Phase.CONSTRUCTOR);
     }
 
     /**
-     * Return a {@code Context} provided in constructor
+     * Return the application {@code Context} of the one provided in constructor, so a module
+     * outliving an {@code Activity} doesn't leak it.
      * @return Context Interface to global information about an application environment.
      */
     public Context getContext() { return this.context; }
@@ -181,6 +272,8 @@ public class RewardsModule {
      * Initializes and loads Widget. Note, that after initialization Widget is still invisible.
      * @param appId Application ID from RMS.
      * @return current instance of {@code RewardsModule}.
+     * @throws IllegalStateException if the module uses {@link LoadingMode#HEADLESS} and
+     * {@link #setEngagementsEndpoint(String)} hasn't been called.
      */
     public RewardsModule init(String appId) {
         return init(appId, Env.PRODUCTION);
@@ -201,51 +294,113 @@ public class RewardsModule {
      * @return current instance of {@code RewardsModule}.
      */
     public RewardsModule setUsername(String value) {
-        putOrProcessHandler(() -> callWidgetJavascript("setUsername", "'" + value + "'"));
+        putOrProcessHandler("setUsername", () -> callWidgetJavascript("setUsername", "'" + value + "'"));
         return this;
     }
 
+    /**
+     * Sends user data to {@code RewardsModule}. Calls made within {@link #setUserDataDebounce(long)}
+     * are coalesced, and only the difference with data sent before is shipped to Widget.
+     * @param jsonObject user data.
+     * @return current instance of {@code RewardsModule}.
+     */
     public RewardsModule setUserData(JSONObject jsonObject) {
-        putOrProcessHandler(() -> callWidgetJavascript("setUserData", jsonObject.toString()));
+        userDataSync.update(jsonObject);
+        return this;
+    }
+
+    /**
+     * Set time within which calls of {@link #setUserData(JSONObject)} are coalesced into a single
+     * update of Widget. Default is 250 milliseconds.
+     * @param debounceMillis debounce window in milliseconds.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setUserDataDebounce(long debounceMillis) {
+        userDataSync.setDebounce(debounceMillis);
         return this;
     }
 
     /**
      * Returns is {@code RewardsModule} has reward items or social tasks for given placement.
+     * Soon after {@code init} it answers from engagements stored during previous sessions (if they
+     * are not older than {@link #setEngagementsCacheTtl(long)}), then from the ones loaded by Widget.
+     * Stored engagements are read in background, {@link #onEngagementsChanged} tells when they are.
+     * With {@link LoadingMode#LAZY} a negative answer starts loading Widget, unless stored
+     * engagements are still being read and turn out to have items for the placement.
      * @param placement Placement.
      * @return boolean.
      */
     public boolean hasItems(String placement) {
-        if (engagementMap.containsKey(placement)) {
-            return engagementMap.get(placement).getRewardItems().size() > 0 ||
-                    engagementMap.get(placement).getSocialTasks().size() > 0;
+        if (!engagementStore.hasItems(placement)) {
+            engagementsMissing(placement);
+            return false;
         }
-
-        return false;
+        return true;
     }
 
     /**
-     * Returns a {@code Set} of available placements.
+     * Returns an unmodifiable {@code Set} of available placements.
      * @return Set of available placements.
      */
     public Set<String> getPlacements() {
-        return engagementMap.keySet();
+        Set<String> placements = engagementStore.placements();
+        if (placements.isEmpty()) {
+            engagementsMissing(null);
+        }
+        return placements;
     }
 
     /**
-     * Opens {@code RewardsModule} in on boarding mode .
+     * Opens {@code RewardsModule} in on boarding mode. Calls made before Widget has initialized
+     * are postponed.
      * @return current instance of {@code RewardsModule}.
      */
     public void showOnboarding() {
-        callWidgetJavascript("showOnboarding", null);
+        Workers.runOnMain(this::ensureWebView);
+        putOrProcessHandler("show", () -> callWidgetJavascript("showOnboarding", null));
     }
 
     /**
-     * Opens {@code RewardsModule} with given placement.
+     * Opens {@code RewardsModule} with given placement. Calls made before Widget has initialized
+     * are postponed.
      * @param placement Placement configured in RMS.
      */
     public void show(String placement) {
-        callWidgetJavascript("show", "'" + placement + "'");
+        Workers.runOnMain(this::ensureWebView);
+        putOrProcessHandler("show", () -> callWidgetJavascript("show", "'" + placement + "'"));
+    }
+
+    /**
+     * Asks Widget to preload assets and data of given placement and render it in background, while
+     * {@code RewardsModule} is still hidden, so following {@link #show(String)} of the same placement
+     * only attaches already rendered Widget. Calls made before Widget has initialized are postponed.
+     * @param placement Placement configured in RMS.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule prefetch(String placement) {
+        Workers.runOnMain(this::ensureWebView);
+        prefetchedPlacements.add(placement);
+        putOrProcessHandler(prefetchKey(placement), () -> {
+            Workers.runOnMain(this::layoutOffscreen);
+            callWidgetJavascript("prefetch", "'" + placement + "'");
+        });
+        return this;
+    }
+
+    /**
+     * Stops prefetching given placement: drops the call if it's still postponed until Widget has
+     * initialized. {@link #logout()} cancels all prefetched placements.
+     * @param placement Placement passed to {@link #prefetch(String)}.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule cancelPrefetch(String placement) {
+        prefetchedPlacements.remove(placement);
+        pendingCommands.remove(prefetchKey(placement));
+        return this;
+    }
+
+    private static String prefetchKey(String placement) {
+        return "prefetch:" + placement;
     }
 
     /**
@@ -256,7 +411,34 @@ public class RewardsModule {
             onHideHandler.handle();
         }
 
-        getContext().sendBroadcast(new Intent(close_widget_view.name()));
+        cancelHostCalls();
+
+        events.post(close_widget_view);
+    }
+
+    /**
+     * Set time after {@code init} when {@link LoadingMode#LAZY} module loads Widget anyway, once the
+     * main thread is idle, so it's ready before user opens it. By default Widget isn't loaded until
+     * it's needed.
+     * @param delayMillis delay in milliseconds, negative to wait for real need.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setLazyLoadDelay(long delayMillis) {
+        lazyLoadDelay = delayMillis;
+        return this;
+    }
+
+    /**
+     * Set URL which {@link LoadingMode#HEADLESS} module loads engagements from. Required for such
+     * module and must be called before {@code init}. App ID, platform, SDK version and environment
+     * are added as query parameters. If engagements can't be loaded from it, Widget is loaded in
+     * WebView as with {@link LoadingMode#LAZY}.
+     * @param url endpoint URL.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setEngagementsEndpoint(String url) {
+        engagementsEndpoint = url;
+        return this;
     }
 
     /**
@@ -313,6 +495,18 @@ public class RewardsModule {
         return this;
     }
 
+    /**
+     * Set maximum number of calls (e.g. {@code setUserData}) kept while {@code RewardsModule} is not
+     * initialized yet. Repeated calls of the same method are replaced by the latest one, and the
+     * oldest calls are dropped when the limit is exceeded. Default is 256.
+     * @param limit maximum number of postponed calls.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setPendingCommandsLimit(int limit) {
+        pendingCommands.setLimit(limit);
+        return this;
+    }
+
     /**
      * Optional callback which will be fired after {@code RewardsModule} hide method.
      * @param handler instance of {@code OnHideHandler}.
@@ -353,6 +547,20 @@ public class RewardsModule {
         return this;
     }
 
+    /**
+     * Optional callback which should return rewards user already bought page by page, so long
+     * histories can be loaded lazily, e.g. from your own database. If it's not provided, pages are
+     * sliced from the list returned by {@link OnGetClaimedRewardsHandler}: the whole list is still
+     * requested from it, once when Widget asks for the first page, and kept in memory until the
+     * last page is served. Provide this handler when loading the whole history is expensive.
+     * @param handler instance of {@code OnGetClaimedRewardsPageHandler}.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule onGetClaimedRewardsPage(OnGetClaimedRewardsPageHandler handler) {
+        onGetClaimedRewardsPageHandler = handler;
+        return this;
+    }
+
     /**
      * Optional callback which should return is user already exists in your system.
      * @param handler instance of {@code OnGetUserByEmailHandler}
@@ -363,6 +571,70 @@ public class RewardsModule {
         return this;
     }
 
+    /**
+     * Set executor which runs {@link OnGetUserByEmailHandler}, {@link OnGetClaimedRewardsHandler} and
+     * {@link OnGetClaimedRewardsPageHandler}, e.g. your database executor. By default handlers are
+     * invoked right away on the bridge thread which delivers Widget calls (the main thread).
+     * @param executor executor of host handlers.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setHostExecutor(Executor executor) {
+        hostExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Set deadline of {@link OnGetUserByEmailHandler}, {@link OnGetClaimedRewardsHandler} and
+     * {@link OnGetClaimedRewardsPageHandler}. When a handler doesn't respond in time, fails, or Widget
+     * is closed meanwhile, Widget gets a fallback response and the late response is ignored:
+     * <ul>
+     *     <li>{@code onGetUserByEmail} answers {@code null}, meaning "unknown". It is not {@code false},
+     *     so Widget doesn't offer sign up to a user who may already exist;</li>
+     *     <li>claimed rewards handlers answer with an empty list.</li>
+     * </ul>
+     * Timeouts are counted in {@link #getBridgeStats()}. Default is 10 seconds.
+     * @param timeoutMillis deadline in milliseconds, {@code 0} to wait forever.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setHostCallTimeout(long timeoutMillis) {
+        hostCallTimeout = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Enables caching of {@link OnGetUserByEmailHandler} results, so repeated lookups of the same
+     * email (compared case-insensitively) within given time don't reach your backend, and concurrent
+     * lookups of the same email share a single handler call. Result for an email is forgotten once
+     * user signs in or up with it. Disabled by default.
+     * @param ttlMillis time a result is reused, {@code 0} to disable the cache.
+     * @param maxSize maximum number of cached emails.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setUserLookupCache(long ttlMillis, int maxSize) {
+        userLookupCache = ttlMillis > 0 && maxSize > 0 ? new UserLookupCache(ttlMillis, maxSize) : null;
+        return this;
+    }
+
+    /**
+     * Returns number of {@link OnGetUserByEmailHandler} lookups answered by the cache, including
+     * the ones which have joined a lookup in progress.
+     * @return number of cache hits.
+     */
+    public long getUserLookupHits() {
+        UserLookupCache cache = userLookupCache;
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    /**
+     * Returns number of {@link OnGetUserByEmailHandler} lookups which have reached the handler
+     * while the cache is enabled.
+     * @return number of cache misses.
+     */
+    public long getUserLookupMisses() {
+        UserLookupCache cache = userLookupCache;
+        return cache == null ? 0 : cache.getMisses();
+    }
+
     /**
      * Optional callback which will be fired after {@code RewardsModule} initialized.
      * @param handler instance of {@code OnInitializationHandler}.
@@ -373,6 +645,153 @@ public class RewardsModule {
         return this;
     }
 
+    /**
+     * Set maximum age of engagements stored on device which are used before Widget has loaded.
+     * Should be called before {@code init}. Default is one day.
+     * @param ttlMillis maximum age in milliseconds.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setEngagementsCacheTtl(long ttlMillis) {
+        engagementsCacheTtl = ttlMillis;
+        return this;
+    }
+
+    /**
+     * Optional callback which will be fired on main thread every time available engagements
+     * were updated, e.g. when stored ones were replaced with engagements loaded by Widget.
+     * @param handler instance of {@code OnEngagementsChangedHandler}.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule onEngagementsChanged(OnEngagementsChangedHandler handler) {
+        onEngagementsChangedHandler = handler;
+        return this;
+    }
+
+    /**
+     * Optional callback which will be fired after every batch of calls to Widget, e.g. to collect
+     * latency metrics.
+     * @param handler instance of {@code OnJavascriptBatchHandler}.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule onJavascriptBatch(OnJavascriptBatchHandler handler) {
+        onJavascriptBatchHandler = handler;
+        return this;
+    }
+
+    /**
+     * Optional callback which will be fired after every call between Widget and {@code RewardsModule},
+     * in both directions, so you can forward timings, payload sizes and errors to your own metrics
+     * system. The callback is invoked on the thread the call has finished on and should be fast.
+     * @param handler instance of {@code OnBridgeCallHandler}.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule onBridgeCall(OnBridgeCallHandler handler) {
+        onBridgeCallHandler = handler;
+        return this;
+    }
+
+    /**
+     * Optional callback which will be fired once per Widget load, right after
+     * {@link OnInitializationHandler}, with the timeline of startup phases. Use it to track time to
+     * interactive of the Widget across versions.
+     * @param handler instance of {@code OnStartupTimelineHandler}.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule onStartupTimeline(OnStartupTimelineHandler handler) {
+        onStartupTimelineHandler = handler;
+        return this;
+    }
+
+    /**
+     * Set maximum size of the disk cache of reward images, which are downloaded in background as soon
+     * as engagements or claimed rewards are loaded and served to Widget from disk. The cache is
+     * shared by all instances of {@code RewardsModule}. Default is 20 MB.
+     * @param bytes maximum size in bytes.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setImageCacheSize(long bytes) {
+        imageCache.setMaxSize(bytes);
+        return this;
+    }
+
+    /**
+     * Returns hit rate and size of the disk cache of reward images.
+     * @return image cache statistics.
+     */
+    public ImageCache.Stats getImageCacheStats() {
+        return imageCache.stats();
+    }
+
+    /**
+     * Set for how long responses of Widget API are reused within the session. A response is reused
+     * as is while it's fresh, and reused while revalidated in background while it's stale. After that
+     * it's revalidated with server before reuse. {@code Cache-Control: max-age} of a response takes
+     * precedence over {@code freshMillis}. Defaults are 30 seconds and 10 minutes. Applies on
+     * Android 5.0 and above.
+     * @param freshMillis time a response is reused without revalidation.
+     * @param staleMillis time a stale response is reused while revalidated in background.
+     * @return current instance of {@code RewardsModule}.
+     */
+    public RewardsModule setApiCacheTtl(long freshMillis, long staleMillis) {
+        apiCacheFreshMillis = freshMillis;
+        apiCacheStaleMillis = staleMillis;
+        if (apiCache != null) {
+            apiCache.setTtl(freshMillis, staleMillis);
+        }
+        return this;
+    }
+
+    /**
+     * Returns hit and revalidation counts of the Widget API cache.
+     * @return API cache statistics or {@code null} if {@code RewardsModule} isn't initialized yet.
+     */
+    public ApiResponseCache.Stats getApiCacheStats() {
+        return apiCache == null ? null : apiCache.stats();
+    }
+
+    /**
+     * Returns aggregated statistics (count, errors, payload sizes and p50/p95/p99 latency) of calls
+     * between Widget and {@code RewardsModule} by handler or Widget method name.
+     * @return Map of call name to its statistics.
+     */
+    public Map<String, BridgeMetrics.Stats> getBridgeStats() {
+        return bridgeMetrics.stats();
+    }
+
+    /**
+     * Returns count, average and maximum latency of delivering Widget events (e.g. close or input
+     * focus) to the Activity showing Widget, by event name.
+     * @return Map of event name to its statistics.
+     */
+    public Map<String, ActivityEventDispatcher.Stats> getActivityEventStats() {
+        return events.stats();
+    }
+
+    /**
+     * Releases this instance: destroys its {@code BridgeWebView} and stops background work.
+     * Every instance keeps its own {@code BridgeWebView} and engagements, so several of them
+     * (e.g. for different apps) may be loaded at the same time; release the ones you don't need
+     * anymore. Must be called from the main thread, the instance must not be used afterwards.
+     */
+    public void release() {
+        RewardsModuleRegistry.unregister(id);
+        Workers.main().removeCallbacks(persistEngagementsTask);
+        if (engagementsDirty) {
+            engagementExecutor.execute(this::persistEngagements);
+        }
+        engagementExecutor.shutdown();
+        cancelHostCalls();
+
+        if (bridgeWebView != null) {
+            if (bridgeWebView.getParent() != null) {
+                ((ViewGroup) bridgeWebView.getParent()).removeView(bridgeWebView);
+            }
+            bridgeWebView.destroy();
+            bridgeWebView = null;
+        }
+        webViewPool.release();
+    }
+
     /**
      * Interface used to callback after sign in.
      */
@@ -409,6 +828,26 @@ public class RewardsModule {
         }
     }
 
+    /**
+     * Interface used for getting rewards user already bought page by page.
+     */
+    public interface OnGetClaimedRewardsPageHandler {
+        /**
+         * @param cursor cursor of the page returned with previous page or {@code null} for the first one.
+         * @param limit maximum number of rewards in the page.
+         * @param callback callback to return the page with.
+         */
+        void handle(String cursor, int limit, ResponseCallback callback);
+
+        interface ResponseCallback {
+            /**
+             * @param claimedRewards rewards of the page.
+             * @param nextCursor cursor of the next page or {@code null} if it was the last one.
+             */
+            void handle(List<ClaimedReward> claimedRewards, String nextCursor);
+        }
+    }
+
     /**
      * Interface used after {@code RewardsModule} hide method.
      */
@@ -423,16 +862,62 @@ public class RewardsModule {
         void handle();
     }
 
+    /**
+     * Interface used after available engagements were updated.
+     */
+    public interface OnEngagementsChangedHandler {
+        void handle(Set<String> placements);
+    }
+
+    /**
+     * Interface used after {@code RewardsModule} startup has finished.
+     */
+    public interface OnStartupTimelineHandler {
+        void handle(StartupTimeline timeline);
+    }
+
+    /**
+     * Interface used after call between Widget and {@code RewardsModule} has finished.
+     */
+    public interface OnBridgeCallHandler {
+        void handle(BridgeMetrics.Call call);
+    }
+
+    /**
+     * Interface used after batch of calls to Widget was evaluated.
+     */
+    public interface OnJavascriptBatchHandler {
+        /**
+         * @param commands number of calls in the batch.
+         * @param queueNanos time the first call of the batch has waited for evaluation.
+         * @param evaluationNanos time of batch evaluation in WebView.
+         */
+        void handle(int commands, long queueNanos, long evaluationNanos);
+    }
+
     protected void clear() {
-        SharedPreferences.Editor prefs = getContext().getSharedPreferences(KEY_STORAGE, Context.MODE_PRIVATE).edit();
+        WidgetStorage storage = WidgetStorage.get(getContext());
+        SecureKeyStore secureStore = SecureKeyStore.get(getContext());
         for (StorageKeys sk : StorageKeys.values()) {
-            prefs.remove(sk.desc());
+            if (sk.secure()) {
+                secureStore.remove(sk.desc());
+            } else {
+                storage.remove(sk.desc());
+            }
         }
-        prefs.apply();
+        secureStore.clearSession();
     }
 
+    /**
+     * @deprecated handlers are bound to their module, use {@link RewardsModuleRegistry#get(String)}.
+     */
+    @Deprecated
     protected static RewardsModule getInstance() {
-        return INSTANCE;
+        return RewardsModuleRegistry.last();
+    }
+
+    String getId() {
+        return id;
     }
 
     protected BridgeWebView getBridgeWebView() {
@@ -441,16 +926,78 @@ public class RewardsModule {
 
     protected boolean isInitialized() { return initialized; }
 
+    ActivityEventDispatcher getEvents() {
+        return events;
+    }
+
+    BridgeMetrics getBridgeMetrics() {
+        return bridgeMetrics;
+    }
+
+    StartupTracer getStartupTracer() {
+        return startupTracer;
+    }
+
+    WidgetBundleCache getBundleCache() {
+        return bundleCache;
+    }
+
+    void callHost(String name, CallBackFunction function, String fallback, HostCall.Task task) {
+        HostCall call = new HostCall(name, function, fallback, this);
+        hostCalls.add(call);
+        call.start(hostExecutor, hostCallTimeout, task);
+    }
+
+    UserLookupCache getUserLookupCache() {
+        return userLookupCache;
+    }
+
+    void userSignedIn(User user) {
+        UserLookupCache cache = userLookupCache;
+        if (cache != null) {
+            cache.invalidate(user.getEmail());
+        }
+    }
+
+    void hostCallFinished(HostCall call) {
+        hostCalls.remove(call);
+    }
+
+    private void cancelHostCalls() {
+        for (HostCall call : hostCalls) {
+            call.cancel();
+        }
+    }
+
+    ApiResponseCache getApiCache() {
+        return apiCache;
+    }
+
+    ImageCache getImageCache() {
+        return imageCache;
+    }
+
+    void prefetchImages(List<ClaimedReward> claimedRewards) {
+        List<String> urls = new ArrayList<>();
+        for (ClaimedReward claimedReward : claimedRewards) {
+            urls.add(claimedReward.getImg());
+        }
+        imageCache.prefetch(urls);
+    }
+
     protected void setInitialized(boolean initialized, RMSData data) {
         if (this.initialized != initialized) {
             this.initialized = initialized;
-            getContext().sendBroadcast(new Intent(initialized_widget_view.name()));
+            if (initialized) {
+                startupTracer.end(Phase.WIDGET_INITIALIZATION);
+                // Widget has loaded, so the spare for logout or reload is built on next idle main thread
+                webViewPool.prewarm();
+            }
+            events.post(initialized_widget_view);
 
             if (this.initialized) {
-                while (!java2JSHandlers.isEmpty()) {
-                    Log.d(TAG, "Will process handler queue");
-                    java2JSHandlers.remove(0).handle();
-                }
+                Log.d(TAG, "Will process handler queue of " + pendingCommands.size());
+                pendingCommands.drain();
 
                 if (data.getWidth() != -1) {
                     setWidth(data.getWidth());
@@ -468,57 +1015,312 @@ public class RewardsModule {
                     setLeft(data.getLeft());
                 }
 
+                startupTracer.begin(Phase.ENGAGEMENTS);
                 bridgeWebView.evaluateJavascript("window.CRBWidget.__getEngagements()", (String value) -> {
-                    try {
-                        JSONObject engs = new JSONObject(value);
-                        Iterator<String> keys = engs.keys();
+                    if (!engagementExecutor.isShutdown()) {
+                        engagementExecutor.execute(() -> ingestEngagements(value));
+                    }
+                });
+            }
+        }
+    }
+
+    void updateEngagements(String deltas) {
+        if (engagementExecutor.isShutdown()) {
+            return;
+        }
+
+        engagementExecutor.execute(() -> {
+            try {
+                engagementStore.apply(EngagementParser.parseDeltas(deltas));
+                engagementsUpdated();
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void ingestEngagements(String value) {
+        try {
+            engagementStore.publish(EngagementParser.parseEngagements(value));
+            engagementsChanged(true);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        startupTracer.end(Phase.ENGAGEMENTS);
+        Workers.main().post(() -> {
+            startupTracer.beginSection(Phase.INITIALIZATION_HANDLER);
+            onInitializationHandler.handle();
+            startupTracer.endSection(Phase.INITIALIZATION_HANDLER);
+
+            StartupTimeline timeline = startupTracer.finish(env);
+            if (timeline != null) {
+                onStartupTimelineHandler.handle(timeline);
+            }
+        });
+    }
+
+    private void fetchEngagements() {
+        try {
+            Map<String, Engagement> engagements = engagementClient.fetch();
+            // Engagements loaded by Widget are more recent
+            if (engagements != null && !initialized) {
+                engagementStore.publish(engagements);
+                engagementsChanged(true);
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Unable to load engagements, loading Widget instead", e);
+            Workers.runOnMain(this::ensureWebView);
+        }
+    }
+
+    private void engagementsChanged(boolean persist) {
+        if (persist) {
+            persistEngagements();
+        } else {
+            prefetchEngagementImages();
+        }
+
+        Set<String> placements = engagementStore.placements();
+        Workers.runOnMain(() -> onEngagementsChangedHandler.handle(placements));
+    }
+
+    /**
+     * Notifies about engagements changed by deltas right away, while writing them to disk and
+     * scanning them for images is coalesced, as Widget may push deltas in bursts.
+     */
+    private void engagementsUpdated() {
+        engagementsDirty = true;
+        Workers.main().removeCallbacks(persistEngagementsTask);
+        Workers.main().postDelayed(persistEngagementsTask, ENGAGEMENTS_PERSIST_DELAY_MS);
+
+        Set<String> placements = engagementStore.placements();
+        Workers.runOnMain(() -> onEngagementsChangedHandler.handle(placements));
+    }
+
+    private void persistEngagements() {
+        engagementsDirty = false;
+        if (engagementCache != null) {
+            engagementCache.write(engagementStore.snapshot());
+        }
+        prefetchEngagementImages();
+    }
 
-                        while (keys.hasNext()) {
-                            String key = keys.next();
-                            engagementMap.put(key, Engagement.fromJson(engs.getString(key)));
+    private void prefetchEngagementImages() {
+        Map<String, Engagement> engagements = engagementStore.snapshot();
+        List<String> images = new ArrayList<>();
+        for (Engagement engagement : engagements.values()) {
+            for (RewardItem rewardItem : engagement.getRewardItems()) {
+                for (Map<String, String> param : rewardItem.getParams()) {
+                    for (Map.Entry<String, String> entry : param.entrySet()) {
+                        if (isImageParam(entry.getKey(), entry.getValue())) {
+                            images.add(entry.getValue());
                         }
-                    } catch (JSONException e) {
-                        e.printStackTrace();
                     }
+                }
+            }
+        }
+        imageCache.prefetch(images);
+    }
 
-                    onInitializationHandler.handle();
-                });
+    private static boolean isImageParam(String name, String value) {
+        if (value == null || !value.startsWith("http")) {
+            return false;
+        }
+
+        String key = name == null ? "" : name.toLowerCase();
+        return key.contains("img") || key.contains("image") || key.contains("icon") || key.contains("logo")
+                || ImageCache.isImage(value);
+    }
+
+    /**
+     * Pages the list returned by {@link OnGetClaimedRewardsHandler}. The list is requested once per
+     * paging session (the first page) and kept until the last page, so following pages are sliced
+     * from memory instead of loading the whole history again. Cursors are {@code <session>:<offset>}.
+     */
+    private void getClaimedRewardsPage(String cursor, int limit, OnGetClaimedRewardsPageHandler.ResponseCallback callback) {
+        ClaimedRewardsSnapshot snapshot = claimedRewardsSnapshot;
+        int from = 0;
+
+        if (cursor != null) {
+            int separator = cursor.indexOf(':');
+            try {
+                if (separator != -1 && snapshot != null && snapshot.id == Integer.parseInt(cursor.substring(0, separator))) {
+                    from = Integer.parseInt(cursor.substring(separator + 1));
+                    slice(snapshot, from, limit, callback);
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Unexpected claimed rewards cursor " + cursor);
             }
+            Log.w(TAG, "Claimed rewards cursor " + cursor + " has expired, starting over");
+        }
+
+        onGetClaimedRewardsHandler.handle(claimedRewards -> {
+            ClaimedRewardsSnapshot loaded = new ClaimedRewardsSnapshot(claimedRewardsSnapshots.incrementAndGet(),
+                    claimedRewards == null ? Collections.emptyList() : new ArrayList<>(claimedRewards));
+            claimedRewardsSnapshot = loaded;
+            slice(loaded, 0, limit, callback);
+        });
+    }
+
+    private void slice(ClaimedRewardsSnapshot snapshot, int from, int limit, OnGetClaimedRewardsPageHandler.ResponseCallback callback) {
+        List<ClaimedReward> all = snapshot.claimedRewards;
+        from = Math.max(0, Math.min(from, all.size()));
+        int to = Math.min(all.size(), from + limit);
+
+        if (to >= all.size() && claimedRewardsSnapshot == snapshot) {
+            claimedRewardsSnapshot = null;
+        }
+        callback.handle(all.subList(from, to), to < all.size() ? snapshot.id + ":" + to : null);
+    }
+
+    private static class ClaimedRewardsSnapshot {
+        final int id;
+        final List<ClaimedReward> claimedRewards;
+
+        ClaimedRewardsSnapshot(int id, List<ClaimedReward> claimedRewards) {
+            this.id = id;
+            this.claimedRewards = claimedRewards;
         }
     }
 
     private void callWidgetJavascript(String method, String data) {
-        String jsCommand = "javascript:window.CRBWidget." + method + "(" + (data == null ? "" : data) + ");";
-        Log.d(TAG, jsCommand);
-        bridgeWebView.loadUrl(jsCommand);
+        javascriptPipeline.enqueue(method, data, null);
+    }
+
+    void callWidgetJavascript(String method, String data, JavascriptPipeline.ResultCallback callback) {
+        javascriptPipeline.enqueue(method, data, callback);
     }
 
     private RewardsModule reload() {
         initialized = false;
+        startupTracer.restart();
         clear();
-        configureWebView();
-        load();
+        if (apiCache != null) {
+            apiCache.clear();
+        }
+        if (userLookupCache != null) {
+            userLookupCache.clear();
+        }
+        claimedRewardsSnapshot = null;
+        if (bridgeWebView != null) {
+            configureWebView();
+            load();
+        } else if (engagementClient != null) {
+            engagementExecutor.execute(this::fetchEngagements);
+        }
+        userDataSync.reset();
+
+        // placements prefetched for the previous user aren't replayed
+        for (String placement : prefetchedPlacements) {
+            cancelPrefetch(placement);
+        }
         return this;
     }
 
+    /**
+     * Creates {@code BridgeWebView} and loads Widget if it hasn't been done yet.
+     * Must be called from the main thread.
+     */
+    void ensureWebView() {
+        if (bridgeWebView != null || !RewardsModuleRegistry.isRegistered(this)) {
+            return;
+        }
+
+        Log.d(TAG, "Creating BridgeWebView on demand");
+        configureWebView();
+        if (loadRequested) {
+            load();
+        }
+    }
+
+    /**
+     * Requests WebView for missing engagements, unless the stored ones are still being read: then
+     * the check is repeated once they are.
+     * @param placement placement without items or {@code null} if there are no placements at all.
+     */
+    private void engagementsMissing(String placement) {
+        synchronized (checksWhileReading) {
+            if (readingStoredEngagements) {
+                checksWhileReading.add(placement);
+                return;
+            }
+        }
+        requestWebView();
+    }
+
+    private void storedEngagementsRead() {
+        List<String> checks;
+        synchronized (checksWhileReading) {
+            readingStoredEngagements = false;
+            checks = new ArrayList<>(checksWhileReading);
+            checksWhileReading.clear();
+        }
+
+        for (String placement : checks) {
+            if (placement == null ? engagementStore.placements().isEmpty() : !engagementStore.hasItems(placement)) {
+                requestWebView();
+                return;
+            }
+        }
+    }
+
+    private void requestWebView() {
+        if (bridgeWebView == null && loadRequested && !headless) {
+            Workers.runOnMain(this::ensureWebView);
+        }
+    }
+
     private void configureWebView() {
+        startupTracer.beginSection(Phase.CONFIGURE_WEB_VIEW);
         if (bridgeWebView != null) {
             bridgeWebView.clearCache(false);
         }
 
-        bridgeWebView = new BridgeWebView(context);
-        bridgeWebView.setBackgroundColor(Color.TRANSPARENT);
+        bridgeWebView = webViewPool.acquire();
+        startupTracer.endSection(Phase.CONFIGURE_WEB_VIEW);
+    }
+
+    /**
+     * Lays out detached {@code BridgeWebView} with the size it will have in
+     * {@code RewardsModuleActivity}, so Widget renders prefetched placement for the right viewport.
+     */
+    private void layoutOffscreen() {
+        if (bridgeWebView == null || bridgeWebView.getParent() != null) {
+            return;
+        }
+
+        DisplayMetrics metrics = Util.getMetrics(context);
+        int width = widthPx > 0 ? widthPx : metrics.widthPixels;
+        int height = heightPx > 0 ? heightPx : metrics.heightPixels;
+
+        bridgeWebView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        bridgeWebView.layout(0, 0, width, height);
+    }
+
+    private BridgeWebView createWebView() {
+        // RewardsModuleActivity swaps in itself while it shows the WebView
+        BridgeWebView webView = new BridgeWebView(new MutableContextWrapper(context));
+        webView.setBackgroundColor(Color.TRANSPARENT);
+        webView.setWebViewClient(new WidgetWebViewClient(webView, this));
 
         for (JS2JavaHandlers handler : JS2JavaHandlers.values()) {
-            bridgeWebView.registerHandler(handler.name(), handler.handler());
+            webView.registerHandler(handler.name(), bridgeMetrics.wrap(handler.name(), handler.handler(this)));
         }
 
         for (UserDefinedHandlers handler : UserDefinedHandlers.values()) {
-            bridgeWebView.registerHandler(handler.name(), handler.handler());
+            webView.registerHandler(handler.name(), bridgeMetrics.wrap(handler.name(), handler.handler(this)));
         }
+
+        return webView;
     }
 
     private RewardsModule load() {
+        startupTracer.begin(Phase.LOAD);
+        startupTracer.begin(Phase.WIDGET_INITIALIZATION);
         bridgeWebView.loadUrl(this.env.widgetURL() + "/native.html?" +
                 "platform=android" +
                 "&v=" + BuildConfig.VERSION_NAME +
@@ -570,18 +1372,19 @@ public class RewardsModule {
     }
 
     void inputFocused(float y) {
-        Intent i = new Intent(input_focused.name());
-        i.putExtra("y", y);
-        getContext().sendBroadcast(i);
+        Bundle extras = new Bundle();
+        extras.putFloat("y", y);
+        events.post(input_focused, extras);
     }
 
     void inputBlurred() {
-        getContext().sendBroadcast(new Intent(input_blurred.name()));
+        events.post(input_blurred);
     }
 
     RewardsModule show() {
         Intent intent = new Intent(getContext(), RewardsModuleActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        intent.putExtra(EXTRA_MODULE_ID, id);
         getContext().startActivity(intent);
         callWidgetJavascript("__showOnNative", null);
         return this;
@@ -590,48 +1393,108 @@ public class RewardsModule {
     RewardsModule setMode(Mode mode) {
         this.mode = mode;
 
-        putOrProcessHandler(() -> callWidgetJavascript("setMode", "'" + mode.toString().toLowerCase() + "'"));
+        putOrProcessHandler("setMode", () -> callWidgetJavascript("setMode", "'" + mode.toString().toLowerCase() + "'"));
         return this;
     }
 
-    private interface Java2JSHandler {
+    interface Java2JSHandler {
         void handle();
     }
 
-    private void putOrProcessHandler(Java2JSHandler handler) {
+    void putOrProcessHandler(String key, Java2JSHandler handler) {
         if (initialized) {
             handler.handle();
         } else {
-            Log.d(TAG, "Will postpone handler");
-            java2JSHandlers.add(handler);
+            Log.d(TAG, "Will postpone handler " + key);
+            pendingCommands.offer(key, handler);
+
+            if (initialized) {
+                pendingCommands.drain();
+            }
         }
     }
 
     private RewardsModule init(String appId, Env env) {
+        if (headless && engagementsEndpoint == null) {
+            throw new IllegalStateException("LoadingMode.HEADLESS requires setEngagementsEndpoint before init");
+        }
+
         this.appId = appId;
         this.env = env;
-        load();
+        this.bundleCache = new WidgetBundleCache(context, env, BuildConfig.VERSION_NAME);
+        this.engagementCache = new EngagementDiskCache(context, appId, env);
+        this.apiCache = new ApiResponseCache(env);
+        this.apiCache.setTtl(apiCacheFreshMillis, apiCacheStaleMillis);
+
+        EngagementDiskCache cache = engagementCache;
+        long cacheTtl = engagementsCacheTtl;
+        synchronized (checksWhileReading) {
+            readingStoredEngagements = true;
+        }
+        engagementExecutor.execute(() -> {
+            try {
+                Map<String, Engagement> stored = cache.read(cacheTtl);
+                if (stored != null) {
+                    engagementStore.publish(stored);
+                    engagementsChanged(false);
+                }
+            } finally {
+                storedEngagementsRead();
+            }
+        });
+
+        if (headless) {
+            // keep the client of a repeated init, so it revalidates engagements it has already loaded
+            EngagementClient client = new EngagementClient(engagementsEndpoint, appId, env, BuildConfig.VERSION_NAME);
+            if (engagementClient == null || !engagementClient.getUrl().equals(client.getUrl())) {
+                engagementClient = client;
+            }
+            engagementExecutor.execute(this::fetchEngagements);
+        }
+
+        loadRequested = true;
+        if (bridgeWebView != null) {
+            load();
+        } else if (lazyLoadDelay >= 0) {
+            Workers.main().postDelayed(() -> Looper.myQueue().addIdleHandler(() -> {
+                ensureWebView();
+                return false;
+            }), lazyLoadDelay);
+        }
 
         return this;
     }
 
     enum StorageKeys {
-        ACCOUNT("account"),
-        PRIVATE_KEY("pk"),
-        ENC_PRIVATE_KEY("enc_pk"),
-        PUBLIC_KEY("pub_k"),
-        TOKEN("token"),
-        PASSWORD("password"),
-        MNEMONIC("mnemonic"),
-        SALT("salt"),
-        EMAIL("email");
+        ACCOUNT("account", false),
+        PRIVATE_KEY("pk", true),
+        ENC_PRIVATE_KEY("enc_pk", true),
+        PUBLIC_KEY("pub_k", false),
+        TOKEN("token", false),
+        PASSWORD("password", true),
+        MNEMONIC("mnemonic", true),
+        SALT("salt", true),
+        EMAIL("email", false);
 
         private String desc;
+        private boolean secure;
 
-        StorageKeys(String desc) {
+        StorageKeys(String desc, boolean secure) {
             this.desc = desc;
+            this.secure = secure;
         }
 
         public String desc() { return this.desc; }
+
+        public boolean secure() { return this.secure; }
+
+        static boolean isSecure(String desc) {
+            for (StorageKeys sk : values()) {
+                if (sk.desc.equals(desc)) {
+                    return sk.secure;
+                }
+            }
+            return false;
+        }
     }
 }
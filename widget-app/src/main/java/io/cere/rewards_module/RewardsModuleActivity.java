@@ -1,10 +1,8 @@
 package io.cere.rewards_module;
 
 import android.animation.LayoutTransition;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
+import android.content.MutableContextWrapper;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
@@ -30,70 +28,49 @@ public class RewardsModuleActivity extends AppCompatActivity {
 
     private BridgeWebView bridgeWebView;
     private RelativeLayout root;
-    private RewardsModule rewardsModule = RewardsModule.getInstance();
+    private RewardsModule rewardsModule;
     private final int LEFT_RIGHT_MARGIN = 5;
     private final int TOP_BOTTOM_MARGIN = 5;
 
-    private final BroadcastReceiver closeReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            finish();
-            overridePendingTransition(R.anim.scale_up, R.anim.scale_down);
-        }
+    private final ActivityEventDispatcher.Listener closeListener = (event, extras) -> {
+        finish();
+        overridePendingTransition(R.anim.scale_up, R.anim.scale_down);
     };
 
-    private final BroadcastReceiver maximizeReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            rewardsModule.setMaximized(true);
-            maximize();
-        }
+    private final ActivityEventDispatcher.Listener maximizeListener = (event, extras) -> {
+        rewardsModule.setMaximized(true);
+        maximize();
     };
 
-    private final BroadcastReceiver restoreReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            rewardsModule.setMaximized(false);
-            minimize();
-        }
+    private final ActivityEventDispatcher.Listener restoreListener = (event, extras) -> {
+        rewardsModule.setMaximized(false);
+        minimize();
     };
 
-    private final BroadcastReceiver focusReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            double windowHeight = Util.dpFromPx(getBaseContext(), getWindow().getDecorView().getHeight());
-            double webViewHeight = Util.dpFromPx(getBaseContext(), bridgeWebView.getHeight());
-            double margin = (windowHeight - webViewHeight);
+    private final ActivityEventDispatcher.Listener focusListener = (event, extras) -> {
+        double windowHeight = Util.dpFromPx(getBaseContext(), getWindow().getDecorView().getHeight());
+        double webViewHeight = Util.dpFromPx(getBaseContext(), bridgeWebView.getHeight());
+        double margin = (windowHeight - webViewHeight);
 
-            double y = intent.getExtras().getFloat("y") + margin;
+        double y = extras.getFloat("y") + margin;
 
-            double visibleHeight = windowHeight / 2;
+        double visibleHeight = windowHeight / 2;
 
-            if (y > visibleHeight) {
-                double newY = visibleHeight - y - (margin / 2);
-                bridgeWebView.animate().translationY((int) Util.pxFromDp(getBaseContext(), newY)).start();
-            }
+        if (y > visibleHeight) {
+            double newY = visibleHeight - y - (margin / 2);
+            bridgeWebView.animate().translationY((int) Util.pxFromDp(getBaseContext(), newY)).start();
         }
     };
 
-    private final BroadcastReceiver blurReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
+    private final ActivityEventDispatcher.Listener blurListener = (event, extras) ->
             bridgeWebView.animate().translationY(0).start();
-        }
-    };
 
-    private final BroadcastReceiver initReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            runOnUiThread(() -> {
-                RelativeLayout cereLogoLayout = findViewById(R.id.cere_logo_layout);
-                root.removeView(cereLogoLayout);
-
-                if (bridgeWebView.getParent() == null) {
-                    attachBridgetView();
-                }
-            });
+    private final ActivityEventDispatcher.Listener initListener = (event, extras) -> {
+        RelativeLayout cereLogoLayout = findViewById(R.id.cere_logo_layout);
+        root.removeView(cereLogoLayout);
+
+        if (bridgeWebView.getParent() == null) {
+            attachBridgetView();
         }
     };
 
@@ -103,6 +80,13 @@ public class RewardsModuleActivity extends AppCompatActivity {
         overridePendingTransition(R.anim.scale_up, R.anim.scale_down);
         setContentView(R.layout.activity_widget_view);
 
+        rewardsModule = RewardsModuleRegistry.get(getIntent().getStringExtra(RewardsModule.EXTRA_MODULE_ID));
+        if (rewardsModule == null || rewardsModule.getBridgeWebView() == null) {
+            rewardsModule = null;
+            finish();
+            return;
+        }
+
         root = findViewById(R.id.root);
         root.getLayoutTransition().enableTransitionType(LayoutTransition.CHANGING);
 
@@ -124,19 +108,25 @@ public class RewardsModuleActivity extends AppCompatActivity {
         makeFullScreenWithoutSystemUI();
         configureInitialSize();
 
-        registerReceivers();
+        registerListeners();
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        if (rewardsModule == null) {
+            return;
+        }
+
         detachBridgeView();
-        unregisterReceivers();
+        unregisterListeners();
     }
 
     @Override
     public void onBackPressed() {
-        rewardsModule.inputBlurred();
+        if (rewardsModule != null) {
+            rewardsModule.inputBlurred();
+        }
     }
 
     private void makeFullScreenWithoutSystemUI() {
@@ -152,22 +142,24 @@ public class RewardsModuleActivity extends AppCompatActivity {
         }
     }
 
-    private void registerReceivers() {
-        registerReceiver(closeReceiver, new IntentFilter(close_widget_view.name()));
-        registerReceiver(maximizeReceiver, new IntentFilter(maximize_widget_view.name()));
-        registerReceiver(restoreReceiver, new IntentFilter(restore_widget_view.name()));
-        registerReceiver(focusReceiver, new IntentFilter(input_focused.name()));
-        registerReceiver(blurReceiver, new IntentFilter(input_blurred.name()));
-        registerReceiver(initReceiver, new IntentFilter(initialized_widget_view.name()));
+    private void registerListeners() {
+        ActivityEventDispatcher events = rewardsModule.getEvents();
+        events.register(close_widget_view, closeListener);
+        events.register(maximize_widget_view, maximizeListener);
+        events.register(restore_widget_view, restoreListener);
+        events.register(input_focused, focusListener);
+        events.register(input_blurred, blurListener);
+        events.register(initialized_widget_view, initListener);
     }
 
-    private void unregisterReceivers() {
-        unregisterReceiver(closeReceiver);
-        unregisterReceiver(maximizeReceiver);
-        unregisterReceiver(restoreReceiver);
-        unregisterReceiver(focusReceiver);
-        unregisterReceiver(blurReceiver);
-        unregisterReceiver(initReceiver);
+    private void unregisterListeners() {
+        ActivityEventDispatcher events = rewardsModule.getEvents();
+        events.unregister(closeListener);
+        events.unregister(maximizeListener);
+        events.unregister(restoreListener);
+        events.unregister(focusListener);
+        events.unregister(blurListener);
+        events.unregister(initListener);
     }
 
     private void configureInitialSize() {
@@ -200,6 +192,7 @@ public class RewardsModuleActivity extends AppCompatActivity {
 
     private void attachBridgetView() {
         if (bridgeWebView.getParent() == null) {
+            setWebViewContext(this);
             root.addView(bridgeWebView);
             RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) bridgeWebView.getLayoutParams();
             params.addRule(RelativeLayout.CENTER_IN_PARENT, RelativeLayout.TRUE);
@@ -213,6 +206,13 @@ public class RewardsModuleActivity extends AppCompatActivity {
         if (bridgeWebView != null && bridgeWebView.getParent() != null) {
             ((ViewGroup) bridgeWebView.getParent()).removeAllViews();
         }
+        setWebViewContext(getApplicationContext());
+    }
+
+    private void setWebViewContext(Context context) {
+        if (bridgeWebView != null && bridgeWebView.getContext() instanceof MutableContextWrapper) {
+            ((MutableContextWrapper) bridgeWebView.getContext()).setBaseContext(context);
+        }
     }
 
     private void maximize() {
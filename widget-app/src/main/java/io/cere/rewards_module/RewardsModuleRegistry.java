@@ -0,0 +1,68 @@
+package io.cere.rewards_module;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide registry of live {@link RewardsModule} instances, so several modules (e.g. for
+ * different apps or placements) can be loaded side by side and {@link RewardsModuleActivity}
+ * is able to find the module it was opened for by its id.
+ */
+final class RewardsModuleRegistry {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    private static final Map<String, RewardsModule> MODULES = new ConcurrentHashMap<>();
+    private static volatile RewardsModule last;
+
+    private RewardsModuleRegistry() {
+    }
+
+    /**
+     * Registers given module and returns its unique id.
+     */
+    static String register(RewardsModule module) {
+        String id = String.valueOf(NEXT_ID.incrementAndGet());
+        MODULES.put(id, module);
+        last = module;
+        return id;
+    }
+
+    static void unregister(String id) {
+        RewardsModule module = MODULES.remove(id);
+        if (module != null && module == last) {
+            last = mostRecent();
+        }
+    }
+
+    private static RewardsModule mostRecent() {
+        RewardsModule recent = null;
+        int recentId = 0;
+        for (Map.Entry<String, RewardsModule> entry : MODULES.entrySet()) {
+            int id = Integer.parseInt(entry.getKey());
+            if (id > recentId) {
+                recentId = id;
+                recent = entry.getValue();
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * Returns module registered with given id or {@code null} if it was released.
+     */
+    static RewardsModule get(String id) {
+        return id == null ? null : MODULES.get(id);
+    }
+
+    static boolean isRegistered(RewardsModule module) {
+        return module.getId() != null && MODULES.get(module.getId()) == module;
+    }
+
+    /**
+     * Returns the most recently created module which is still registered.
+     */
+    static RewardsModule last() {
+        return last;
+    }
+}
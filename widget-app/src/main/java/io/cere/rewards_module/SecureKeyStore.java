@@ -0,0 +1,375 @@
+package io.cere.rewards_module;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypted storage of secure {@code RewardsModule.StorageKeys} (private keys, mnemonic, password
+ * and salt) exposed to Widget through {@link JS2JavaHandlers}.
+ *
+ * <p>Values are encrypted with AES-GCM and kept in {@link WidgetStorage} under their own
+ * {@code secure:} names, apart from plaintext values of previous versions, which are encrypted and
+ * deleted from {@code SharedPreferences} on first access. The encryption key lives
+ * in Android Keystore on API 23+; older devices fall back to {@link SoftwareKeyProvider}. The key
+ * handle, cipher, decrypted values and PBKDF2-derived keys are cached in memory for the session,
+ * so Widget doesn't repeat expensive key derivation.</p>
+ */
+class SecureKeyStore {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_TAG_BITS = 128;
+    private static final int MAX_DERIVED_KEYS = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String PREFIX = "secure:";
+
+    private static volatile SecureKeyStore INSTANCE;
+
+    private final Storage storage;
+    private final Storage legacy;
+    private final KeyProvider keyProvider;
+    private final Base64Codec base64;
+    private boolean migrated = false;
+
+    private SecretKey key;
+    private Cipher cipher;
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<String, byte[]> derivedKeys = new LinkedHashMap<String, byte[]>(MAX_DERIVED_KEYS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_DERIVED_KEYS;
+        }
+    };
+
+    SecureKeyStore(Storage storage, KeyProvider keyProvider, Base64Codec base64) {
+        this(storage, null, keyProvider, base64);
+    }
+
+    /**
+     * @param legacy storage of plaintext values written by previous versions, which are moved into
+     *               {@code storage} encrypted.
+     */
+    SecureKeyStore(Storage storage, Storage legacy, KeyProvider keyProvider, Base64Codec base64) {
+        this.storage = storage;
+        this.legacy = legacy;
+        this.keyProvider = keyProvider;
+        this.base64 = base64;
+    }
+
+    static SecureKeyStore get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SecureKeyStore.class) {
+                if (INSTANCE == null) {
+                    WidgetStorage storage = WidgetStorage.get(context);
+                    KeyProvider provider = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                            ? new AndroidKeyStoreKeyProvider()
+                            : new SoftwareKeyProvider(storage, Base64Codec.ANDROID);
+                    INSTANCE = new SecureKeyStore(storage, new PreferencesStorage(context), provider, Base64Codec.ANDROID);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns decrypted value of given secure key or {@code null}.
+     */
+    synchronized String get(String name) throws GeneralSecurityException {
+        checkSecure(name);
+        migrateLegacy();
+
+        if (values.containsKey(name)) {
+            return values.get(name);
+        }
+
+        String stored = storage.getString(PREFIX + name, null);
+        String value = stored == null ? null : decrypt(stored);
+        values.put(name, value);
+        return value;
+    }
+
+    synchronized void put(String name, String value) throws GeneralSecurityException {
+        checkSecure(name);
+        migrateLegacy();
+
+        if (value == null) {
+            remove(name);
+            return;
+        }
+
+        storage.putString(PREFIX + name, encrypt(value));
+        values.put(name, value);
+    }
+
+    synchronized void remove(String name) {
+        checkSecure(name);
+        migrateLegacy();
+        storage.remove(PREFIX + name);
+        if (legacy != null) {
+            legacy.remove(name);
+        }
+        values.put(name, null);
+    }
+
+    /**
+     * Forgets decrypted values and derived keys, e.g. on logout.
+     */
+    synchronized void clearSession() {
+        values.clear();
+        synchronized (derivedKeys) {
+            derivedKeys.clear();
+        }
+    }
+
+    /**
+     * Derives key with PBKDF2 (HMAC-SHA1), returning cached result for the same input.
+     * Might be slow, so never call it from the main thread. Derived keys are guarded by their own
+     * lock, so the derivation doesn't block other calls.
+     */
+    byte[] deriveKey(String password, byte[] salt, int iterations, int lengthBits) throws GeneralSecurityException {
+        String cacheKey = Util.sha1(password + '\u0000' + base64.encode(salt) + '\u0000' + iterations + '\u0000' + lengthBits);
+
+        synchronized (derivedKeys) {
+            byte[] derived = derivedKeys.get(cacheKey);
+            if (derived != null) {
+                return derived.clone();
+            }
+        }
+
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+        byte[] derived = factory.generateSecret(new PBEKeySpec(password.toCharArray(), salt, iterations, lengthBits)).getEncoded();
+
+        synchronized (derivedKeys) {
+            derivedKeys.put(cacheKey, derived);
+        }
+        return derived.clone();
+    }
+
+    /**
+     * Encrypts plaintext values of previous versions once and deletes them. Values already stored
+     * encrypted take precedence. Retried on next access if encryption fails.
+     */
+    private void migrateLegacy() {
+        if (legacy == null || migrated) {
+            return;
+        }
+
+        try {
+            for (RewardsModule.StorageKeys sk : RewardsModule.StorageKeys.values()) {
+                String value = sk.secure() ? legacy.getString(sk.desc(), null) : null;
+                if (value == null) {
+                    continue;
+                }
+
+                if (storage.getString(PREFIX + sk.desc(), null) == null) {
+                    storage.putString(PREFIX + sk.desc(), encrypt(value));
+                }
+                legacy.remove(sk.desc());
+            }
+            migrated = true;
+        } catch (GeneralSecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private String encrypt(String value) throws GeneralSecurityException {
+        Cipher cipher = cipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key());
+        byte[] iv = cipher.getIV();
+        byte[] encrypted = cipher.doFinal(value.getBytes(UTF_8));
+
+        byte[] result = new byte[1 + iv.length + encrypted.length];
+        result[0] = (byte) iv.length;
+        System.arraycopy(iv, 0, result, 1, iv.length);
+        System.arraycopy(encrypted, 0, result, 1 + iv.length, encrypted.length);
+        return base64.encode(result);
+    }
+
+    private String decrypt(String stored) throws GeneralSecurityException {
+        byte[] data;
+        try {
+            data = base64.decode(stored);
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Stored value is not encrypted");
+        }
+
+        int ivLength = data.length == 0 ? 0 : data[0];
+        if (ivLength <= 0 || data.length < 1 + ivLength) {
+            throw new GeneralSecurityException("Stored value is not encrypted");
+        }
+
+        Cipher cipher = cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key(), new GCMParameterSpec(GCM_TAG_BITS, data, 1, ivLength));
+        return new String(cipher.doFinal(data, 1 + ivLength, data.length - 1 - ivLength), UTF_8);
+    }
+
+    private SecretKey key() throws GeneralSecurityException {
+        if (key == null) {
+            key = keyProvider.getKey();
+        }
+        return key;
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+        }
+        return cipher;
+    }
+
+    private static void checkSecure(String name) {
+        if (!RewardsModule.StorageKeys.isSecure(name)) {
+            throw new IllegalArgumentException(name + " is not a secure storage key");
+        }
+    }
+
+    /**
+     * Storage of encrypted values, {@link WidgetStorage} in production.
+     */
+    interface Storage {
+        String getString(String key, String defaultValue);
+
+        void putString(String key, String value);
+
+        void remove(String key);
+    }
+
+    /**
+     * Base64 encoding of stored values, so the store can be used outside of Android.
+     */
+    interface Base64Codec {
+        Base64Codec ANDROID = new Base64Codec() {
+            @Override
+            public String encode(byte[] data) {
+                return Base64.encodeToString(data, Base64.NO_WRAP);
+            }
+
+            @Override
+            public byte[] decode(String data) {
+                return Base64.decode(data, Base64.NO_WRAP);
+            }
+        };
+
+        String encode(byte[] data);
+
+        /**
+         * @throws IllegalArgumentException if given string isn't Base64.
+         */
+        byte[] decode(String data);
+    }
+
+    /**
+     * Source of the encryption key.
+     */
+    interface KeyProvider {
+        SecretKey getKey() throws GeneralSecurityException;
+    }
+
+    /**
+     * Key generated and kept inside Android Keystore, never leaving secure hardware when it's available.
+     */
+    @TargetApi(Build.VERSION_CODES.M)
+    static class AndroidKeyStoreKeyProvider implements KeyProvider {
+        private static final String KEY_STORE = "AndroidKeyStore";
+        private static final String ALIAS = "io.cere.rewards_module.storage";
+
+        @Override
+        public SecretKey getKey() throws GeneralSecurityException {
+            KeyStore keyStore = KeyStore.getInstance(KEY_STORE);
+            try {
+                keyStore.load(null);
+            } catch (IOException e) {
+                throw new GeneralSecurityException(e);
+            }
+
+            KeyStore.Entry entry = keyStore.getEntry(ALIAS, null);
+            if (entry instanceof KeyStore.SecretKeyEntry) {
+                return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+            }
+
+            KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEY_STORE);
+            generator.init(new KeyGenParameterSpec.Builder(ALIAS, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                    .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                    .setKeySize(256)
+                    .build());
+            return generator.generateKey();
+        }
+    }
+
+    /**
+     * {@code SharedPreferences} where JsBridge kept widget keys in plaintext.
+     */
+    private static class PreferencesStorage implements Storage {
+        private final SharedPreferences prefs;
+
+        PreferencesStorage(Context context) {
+            this.prefs = context.getSharedPreferences(RewardsModule.KEY_STORAGE, Context.MODE_PRIVATE);
+        }
+
+        @Override
+        public String getString(String key, String defaultValue) {
+            return prefs.getString(key, defaultValue);
+        }
+
+        @Override
+        public void putString(String key, String value) {
+            prefs.edit().putString(key, value).apply();
+        }
+
+        @Override
+        public void remove(String key) {
+            prefs.edit().remove(key).apply();
+        }
+    }
+
+    /**
+     * Random key kept in {@link Storage}. Used on devices without Android Keystore support for
+     * symmetric keys (API < 23), where it only protects values from casual inspection.
+     */
+    static class SoftwareKeyProvider implements KeyProvider {
+        private static final String STORAGE_KEY = "__secure_storage_key";
+
+        private final Storage storage;
+        private final Base64Codec base64;
+
+        SoftwareKeyProvider(Storage storage, Base64Codec base64) {
+            this.storage = storage;
+            this.base64 = base64;
+        }
+
+        @Override
+        public SecretKey getKey() throws GeneralSecurityException {
+            String stored = storage.getString(STORAGE_KEY, null);
+            if (stored != null) {
+                return new SecretKeySpec(base64.decode(stored), "AES");
+            }
+
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            SecretKey key = generator.generateKey();
+            storage.putString(STORAGE_KEY, base64.encode(key.getEncoded()));
+            return key;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.cere.rewards_module;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timeline of {@code RewardsModule} startup phases, from constructor to
+ * {@link RewardsModule.OnInitializationHandler}, reported to
+ * {@link RewardsModule.OnStartupTimelineHandler}.
+ *
+ * <p>All timestamps are monotonic ({@code SystemClock.elapsedRealtimeNanos}) and phases may overlap,
+ * e.g. {@link Phase#WIDGET_INITIALIZATION} includes {@link Phase#PAGE_LOAD}.</p>
+ */
+public class StartupTimeline {
+
+    private final String version;
+    private final Env env;
+    private final List<Span> spans;
+
+    StartupTimeline(String version, Env env, List<Span> spans) {
+        this.version = version;
+        this.env = env;
+        this.spans = Collections.unmodifiableList(spans);
+    }
+
+    /**
+     * @return version of the SDK which has loaded Widget.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public Env getEnv() {
+        return env;
+    }
+
+    /**
+     * @return recorded phases ordered by start.
+     */
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    /**
+     * @return time from start of the first phase to end of the last one.
+     */
+    public long getTotalNanos() {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (Span span : spans) {
+            start = Math.min(start, span.getStartNanos());
+            end = Math.max(end, span.getEndNanos());
+        }
+        return spans.isEmpty() ? 0 : end - start;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{version=").append(version).append(", env=").append(env);
+        for (Span span : spans) {
+            sb.append(", ").append(span.getPhase().name()).append('=').append(span.getDurationNanos() / 1000000).append("ms");
+        }
+        return sb.append("}").toString();
+    }
+
+    /**
+     * Startup phase.
+     */
+    public enum Phase {
+        /** {@code RewardsModule} constructor. */
+        CONSTRUCTOR,
+        /** Creation or acquiring of {@code BridgeWebView}. */
+        CONFIGURE_WEB_VIEW,
+        /** From {@code init} until Widget page has started loading. */
+        LOAD,
+        /** Widget page loading. */
+        PAGE_LOAD,
+        /** From {@code init} until Widget has reported it's initialized. */
+        WIDGET_INITIALIZATION,
+        /** Loading and parsing of engagements. */
+        ENGAGEMENTS,
+        /** {@link RewardsModule.OnInitializationHandler} invocation. */
+        INITIALIZATION_HANDLER
+    }
+
+    /**
+     * Recorded phase.
+     */
+    public static class Span {
+        private final Phase phase;
+        private final long startNanos;
+        private final long endNanos;
+
+        Span(Phase phase, long startNanos, long endNanos) {
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getEndNanos() {
+            return endNanos;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.cere.rewards_module;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import io.cere.rewards_module.StartupTimeline.Phase;
+import io.cere.rewards_module.StartupTimeline.Span;
+
+/**
+ * Records {@link StartupTimeline} phases. Synchronous phases are also emitted as
+ * {@code android.os.Trace} sections, which are visible in systrace captures and are no-op otherwise.
+ */
+class StartupTracer {
+
+    private static final String SECTION_PREFIX = "RewardsModule.";
+
+    private final Map<Phase, long[]> spans = new EnumMap<>(Phase.class);
+    private boolean finished = false;
+
+    /**
+     * Creates tracer which has already begun {@link Phase#CONSTRUCTOR} section, so it should be
+     * created first when {@code RewardsModule} is being constructed.
+     */
+    StartupTracer() {
+        beginSection(Phase.CONSTRUCTOR);
+    }
+
+    synchronized void begin(Phase phase) {
+        spans.put(phase, new long[]{SystemClock.elapsedRealtimeNanos(), -1});
+    }
+
+    /**
+     * Ends given phase if it was started and isn't ended yet.
+     */
+    synchronized void end(Phase phase) {
+        long[] span = spans.get(phase);
+        if (span != null && span[1] == -1) {
+            span[1] = SystemClock.elapsedRealtimeNanos();
+        }
+    }
+
+    /**
+     * Begins synchronous phase, which must be ended on the same thread with {@link #endSection(Phase)}.
+     */
+    void beginSection(Phase phase) {
+        begin(phase);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(SECTION_PREFIX + phase.name());
+        }
+    }
+
+    void endSection(Phase phase) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        end(phase);
+    }
+
+    /**
+     * Starts recording of a new timeline, e.g. on reload.
+     */
+    synchronized void restart() {
+        spans.clear();
+        finished = false;
+    }
+
+    /**
+     * Returns recorded timeline once per recording.
+     * @return timeline or {@code null} if it was already returned.
+     */
+    synchronized StartupTimeline finish(Env env) {
+        if (finished) {
+            return null;
+        }
+        finished = true;
+
+        List<Span> result = new ArrayList<>();
+        for (Map.Entry<Phase, long[]> entry : spans.entrySet()) {
+            long[] span = entry.getValue();
+            if (span[1] != -1) {
+                result.add(new Span(entry.getKey(), span[0], span[1]));
+            }
+        }
+        Collections.sort(result, (a, b) -> Long.compare(a.getStartNanos(), b.getStartNanos()));
+
+        return new StartupTimeline(BuildConfig.VERSION_NAME, env, result);
+    }
+}
@@ -0,0 +1,149 @@
+package io.cere.rewards_module;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Channel which propagates user data set with {@link RewardsModule#setUserData(JSONObject)} to
+ * Widget. Changes made within the debounce window are coalesced, and after the first full
+ * {@code setUserData} only a JSON merge patch (RFC 7386) of the difference with the last sent state
+ * is sent with {@code patchUserData}. If Widget can't apply a patch, full data is sent instead.
+ */
+class UserDataSync {
+
+    private static final String TAG = "UserDataSync";
+
+    private final RewardsModule module;
+    private final Runnable send = this::send;
+    private JSONObject desired;
+    private JSONObject sent;
+    private boolean scheduled = false;
+    private boolean patchSupported = true;
+    private long debounceMillis = 250;
+
+    UserDataSync(RewardsModule module) {
+        this.module = module;
+    }
+
+    synchronized void setDebounce(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedules sending of given data at the end of the debounce window.
+     */
+    synchronized void update(JSONObject data) {
+        desired = copy(data);
+        if (!scheduled) {
+            scheduled = true;
+            Workers.main().postDelayed(send, debounceMillis);
+        }
+    }
+
+    /**
+     * Forgets state sent to Widget, e.g. after it has been reloaded, and sends full data again.
+     */
+    synchronized void reset() {
+        sent = null;
+        if (desired != null) {
+            module.putOrProcessHandler("setUserData", this::flush);
+        }
+    }
+
+    private void send() {
+        synchronized (this) {
+            scheduled = false;
+        }
+        module.putOrProcessHandler("setUserData", this::flush);
+    }
+
+    private void flush() {
+        String method;
+        String data;
+
+        synchronized (this) {
+            if (desired == null) {
+                return;
+            }
+
+            if (sent == null || !patchSupported) {
+                method = "setUserData";
+                data = desired.toString();
+            } else {
+                JSONObject patch = diff(sent, desired);
+                if (patch.length() == 0) {
+                    return;
+                }
+                method = "patchUserData";
+                data = patch.toString();
+            }
+            sent = desired;
+        }
+
+        module.callWidgetJavascript(method, data, method.equals("setUserData") ? null : (result, error) -> {
+            if (error != null) {
+                Log.w(TAG, "Widget has failed to apply patch, will send full data", error);
+                synchronized (this) {
+                    patchSupported = false;
+                }
+                reset();
+            }
+        });
+    }
+
+    /**
+     * Returns merge patch which turns {@code source} into {@code target}.
+     */
+    static JSONObject diff(JSONObject source, JSONObject target) {
+        JSONObject patch = new JSONObject();
+        try {
+            Iterator<String> keys = target.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object value = target.get(key);
+                Object previous = source.opt(key);
+
+                if (value instanceof JSONObject && previous instanceof JSONObject) {
+                    JSONObject nested = diff((JSONObject) previous, (JSONObject) value);
+                    if (nested.length() > 0) {
+                        patch.put(key, nested);
+                    }
+                } else if (previous == null || !same(previous, value)) {
+                    // Explicit nulls become removals, as merge patch defines
+                    patch.put(key, value);
+                }
+            }
+
+            keys = source.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!target.has(key)) {
+                    patch.put(key, JSONObject.NULL);
+                }
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return patch;
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof JSONObject || a instanceof JSONArray || a instanceof Number) {
+            return a.toString().equals(b.toString());
+        }
+        return a.equals(b);
+    }
+
+    private static JSONObject copy(JSONObject data) {
+        try {
+            return new JSONObject(data.toString());
+        } catch (JSONException e) {
+            return data;
+        }
+    }
+}
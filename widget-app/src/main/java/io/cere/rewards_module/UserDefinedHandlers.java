@@ -5,38 +5,79 @@ import android.content.Context;
 import com.github.funler.jsbridge.BridgeHandler;
 import com.github.funler.jsbridge.CallBackFunction;
 
-import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 
-import io.cere.rewards_module.models.ClaimedReward;
+import java.util.Collections;
+
+import io.cere.rewards_module.models.JsonCodec;
 import io.cere.rewards_module.models.User;
 
 public enum UserDefinedHandlers {
 
-    onGetUserByEmail((Context context, String email, CallBackFunction function) -> {
-        RewardsModule.getInstance().onGetUserByEmailHandler.handle(email, exists -> function.onCallBack(exists + ""));
-    }),
+    onGetUserByEmail((RewardsModule module, Context context, String email, CallBackFunction function) -> {
+        UserLookupCache cache = module.getUserLookupCache();
+        Boolean cached = cache == null ? null : cache.get(email);
+        if (cached != null) {
+            function.onCallBack(cached + "");
+            return;
+        }
 
-    onGetClaimedRewards((Context context, String data, CallBackFunction function) -> {
-        RewardsModule.getInstance().onGetClaimedRewardsHandler.handle(claimedRewards -> {
-            if (claimedRewards == null || claimedRewards.isEmpty()) {
-                function.onCallBack("[]");
+        // unknown rather than "false", which would send an existing user into sign up
+        module.callHost("onGetUserByEmail", function, "null", call -> {
+            if (cache == null) {
+                module.onGetUserByEmailHandler.handle(email, exists -> call.complete(exists + ""));
             } else {
-                JSONArray jsonArray = new JSONArray();
-                for (ClaimedReward reward : claimedRewards) {
-                    jsonArray.put(reward.toJson());
-                }
-                function.onCallBack(jsonArray.toString());
+                cache.load(email, module.onGetUserByEmailHandler, call);
             }
         });
     }),
 
-    onSignIn((Context context, String data, CallBackFunction function) -> {
+    onGetClaimedRewards((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        module.callHost("onGetClaimedRewards", function, "[]", call ->
+                module.onGetClaimedRewardsHandler.handle(claimedRewards -> {
+                    if (claimedRewards == null || claimedRewards.isEmpty()) {
+                        call.complete("[]");
+                    } else {
+                        call.complete(JsonCodec.toJson(claimedRewards));
+                        module.prefetchImages(claimedRewards);
+                    }
+                }));
+    }),
+
+    onGetClaimedRewardsPage((RewardsModule module, Context context, String data, CallBackFunction function) -> {
+        String cursor = null;
+        int limit = RewardsModule.CLAIMED_REWARDS_PAGE_SIZE;
+
+        try {
+            if (data != null && !data.equals("null")) {
+                JSONObject request = new JSONObject(data);
+                cursor = request.isNull("cursor") ? null : request.getString("cursor");
+                limit = request.optInt("limit", RewardsModule.CLAIMED_REWARDS_PAGE_SIZE);
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+        String pageCursor = cursor;
+        int pageLimit = Math.max(1, limit);
+        module.callHost("onGetClaimedRewardsPage", function, JsonCodec.toJson(Collections.emptyList(), null), call ->
+                module.onGetClaimedRewardsPageHandler.handle(pageCursor, pageLimit, (claimedRewards, nextCursor) -> {
+                    call.complete(JsonCodec.toJson(claimedRewards == null ? Collections.emptyList() : claimedRewards, nextCursor));
+                    if (claimedRewards != null) {
+                        module.prefetchImages(claimedRewards);
+                    }
+                }));
+    }),
+
+    onSignIn((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         if (data == null || data.equals("null")) {
             function.onCallBack(null);
         } else {
             try {
-                RewardsModule.getInstance().onSignInHandler.handle(User.fromJson(data));
+                User user = User.fromJson(data);
+                module.userSignedIn(user);
+                module.onSignInHandler.handle(user);
             } catch (JSONException e) {
                 e.printStackTrace();
             } finally {
@@ -45,12 +86,14 @@ public enum UserDefinedHandlers {
         }
     }),
 
-    onSignUp((Context context, String data, CallBackFunction function) -> {
+    onSignUp((RewardsModule module, Context context, String data, CallBackFunction function) -> {
         if (data == null || data.equals("null")) {
             function.onCallBack(null);
         } else {
             try {
-                RewardsModule.getInstance().onSignUpHandler.handle(User.fromJson(data));
+                User user = User.fromJson(data);
+                module.userSignedIn(user);
+                module.onSignUpHandler.handle(user);
             } catch (JSONException e) {
                 e.printStackTrace();
             } finally {
@@ -59,11 +102,13 @@ public enum UserDefinedHandlers {
         }
     });
 
-    private BridgeHandler handler;
+    private ModuleBridgeHandler handler;
 
-    UserDefinedHandlers(BridgeHandler handler) {
+    UserDefinedHandlers(ModuleBridgeHandler handler) {
         this.handler = handler;
     }
 
-    BridgeHandler handler() { return this.handler; }
+    BridgeHandler handler(RewardsModule module) {
+        return (Context context, String data, CallBackFunction function) -> handler.handler(module, context, data, function);
+    }
 }
@@ -0,0 +1,164 @@
+package io.cere.rewards_module;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.cere.rewards_module.RewardsModule.OnGetUserByEmailHandler;
+
+/**
+ * Bounded TTL cache of {@link OnGetUserByEmailHandler} results in front of the host handler, which
+ * Widget calls as user types or resubmits the sign-in form. Emails are compared trimmed and
+ * case-insensitively, and concurrent lookups of the same email share a single host call.
+ */
+class UserLookupCache {
+
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Result> entries;
+    private final Map<String, Lookup> inFlight = new HashMap<>();
+    private long hits = 0;
+    private long misses = 0;
+
+    UserLookupCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns cached result for given email or {@code null} if it's missing or expired.
+     */
+    synchronized Boolean get(String email) {
+        String key = normalize(email);
+        Result result = entries.get(key);
+        if (result != null && System.currentTimeMillis() - result.storedAt < ttlMillis) {
+            hits++;
+            return result.exists;
+        }
+
+        entries.remove(key);
+        return null;
+    }
+
+    /**
+     * Looks given email up with the host handler on behalf of given call, joining a lookup of the
+     * same email in progress unless it's older than TTL. A lookup is forgotten as soon as the call
+     * which has started it finishes without the host result (e.g. it has timed out or Widget was
+     * closed), so the next call asks the host again. Calls which have joined a lookup still get its
+     * result if the host responds late, and fail together with it if the host handler throws.
+     */
+    void load(String email, OnGetUserByEmailHandler handler, HostCall call) {
+        String key = normalize(email);
+        Lookup lookup;
+        synchronized (this) {
+            lookup = inFlight.get(key);
+            if (lookup != null && System.currentTimeMillis() - lookup.startedAt < ttlMillis) {
+                hits++;
+                lookup.calls.add(call);
+                return;
+            }
+
+            misses++;
+            lookup = new Lookup(System.currentTimeMillis());
+            lookup.calls.add(call);
+            inFlight.put(key, lookup);
+        }
+
+        Lookup started = lookup;
+        call.onFinish(() -> abandon(key, started));
+        try {
+            handler.handle(email, exists -> {
+                List<HostCall> calls;
+                synchronized (this) {
+                    if (started.done) {
+                        return;
+                    }
+                    started.done = true;
+                    calls = started.calls;
+                    if (inFlight.get(key) == started) {
+                        inFlight.remove(key);
+                    }
+                    entries.put(key, new Result(exists, System.currentTimeMillis()));
+                }
+
+                for (HostCall waiting : calls) {
+                    waiting.complete(exists + "");
+                }
+            });
+        } catch (RuntimeException e) {
+            List<HostCall> calls;
+            synchronized (this) {
+                started.done = true;
+                calls = started.calls;
+                if (inFlight.get(key) == started) {
+                    inFlight.remove(key);
+                }
+            }
+
+            for (HostCall waiting : calls) {
+                if (waiting != call) {
+                    waiting.fail();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void abandon(String key, Lookup lookup) {
+        if (!lookup.done && inFlight.get(key) == lookup) {
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * Forgets result for given email, e.g. after user has signed up with it.
+     */
+    synchronized void invalidate(String email) {
+        if (email != null) {
+            entries.remove(normalize(email));
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.US);
+    }
+
+    private static class Lookup {
+        final long startedAt;
+        final List<HostCall> calls = new ArrayList<>();
+        boolean done = false;
+
+        Lookup(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+
+    private static class Result {
+        final boolean exists;
+        final long storedAt;
+
+        Result(boolean exists, long storedAt) {
+            this.exists = exists;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -5,6 +5,11 @@ import android.util.DisplayMetrics;
 import android.view.Display;
 import android.view.WindowManager;
 
+import java.io.File;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 class Util {
     static double dpFromPx(Context context, double px) {
         return px / context.getResources().getDisplayMetrics().density;
@@ -30,4 +35,54 @@ class Util {
 
         return metrics;
     }
+
+    static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return toHex(digest.digest(value.getBytes(Charset.forName("UTF-8"))));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Decodes hex string, optionally prefixed with {@code 0x}.
+     * @throws IllegalArgumentException if string isn't a valid hex.
+     */
+    static byte[] fromHex(String hex) {
+        String value = hex.startsWith("0x") ? hex.substring(2) : hex;
+        if (value.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd length of hex string");
+        }
+
+        byte[] bytes = new byte[value.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(value.charAt(2 * i), 16);
+            int low = Character.digit(value.charAt(2 * i + 1), 16);
+            if (high == -1 || low == -1) {
+                throw new IllegalArgumentException("Invalid hex string");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
 }
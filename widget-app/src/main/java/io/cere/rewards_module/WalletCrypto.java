@@ -0,0 +1,383 @@
+package io.cere.rewards_module;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Wallet cryptography executed natively instead of Widget JavaScript: BIP-39 mnemonic to seed,
+ * BIP-32 key derivation and deterministic (RFC 6979) ECDSA signing on secp256k1.
+ *
+ * <p>All operations are CPU-bound and should run on {@link #executor()}.</p>
+ */
+final class WalletCrypto {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SEED_ITERATIONS = 2048;
+    private static final int HARDENED = 0x80000000;
+
+    private static final BigInteger P = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+    private static final BigInteger N = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+    private static final BigInteger HALF_N = N.shiftRight(1);
+    private static final Point G = new Point(
+            new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
+            new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16),
+            BigInteger.ONE);
+
+    private static final int WINDOW_BITS = 4;
+    private static final int WINDOWS = 256 / WINDOW_BITS;
+
+    private static Point[][] gTable;
+    private static Point gOffset;
+
+    private WalletCrypto() {}
+
+    static ExecutorService executor() {
+        return ExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Converts BIP-39 mnemonic into 64 bytes seed.
+     */
+    static byte[] mnemonicToSeed(String mnemonic, String passphrase) throws GeneralSecurityException {
+        byte[] password = Normalizer.normalize(mnemonic, Normalizer.Form.NFKD).getBytes(UTF_8);
+        byte[] salt = Normalizer.normalize("mnemonic" + (passphrase == null ? "" : passphrase), Normalizer.Form.NFKD).getBytes(UTF_8);
+
+        return pbkdf2HmacSha512(password, salt, SEED_ITERATIONS);
+    }
+
+    /**
+     * Derives BIP-32 private key for given path, e.g. {@code m/44'/60'/0'/0/0}.
+     */
+    static byte[] derivePrivateKey(byte[] seed, String path) throws GeneralSecurityException {
+        String[] segments = path.trim().split("/");
+        if (segments.length == 0 || !segments[0].equals("m")) {
+            throw new GeneralSecurityException("Invalid derivation path " + path);
+        }
+
+        byte[] master = hmacSha512("Bitcoin seed".getBytes(UTF_8), seed);
+        BigInteger key = new BigInteger(1, Arrays.copyOfRange(master, 0, 32));
+        byte[] chainCode = Arrays.copyOfRange(master, 32, 64);
+        checkPrivateKey(key);
+
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean hardened = segment.endsWith("'") || segment.endsWith("h");
+            int index;
+            try {
+                index = Integer.parseInt(hardened ? segment.substring(0, segment.length() - 1) : segment);
+            } catch (NumberFormatException e) {
+                throw new GeneralSecurityException("Invalid derivation path " + path);
+            }
+            if (index < 0) {
+                throw new GeneralSecurityException("Invalid derivation path " + path);
+            }
+
+            byte[] data = new byte[37];
+            if (hardened) {
+                index |= HARDENED;
+                System.arraycopy(toBytes32(key), 0, data, 1, 32);
+            } else {
+                System.arraycopy(publicKey(key, true), 0, data, 0, 33);
+            }
+            data[33] = (byte) (index >>> 24);
+            data[34] = (byte) (index >>> 16);
+            data[35] = (byte) (index >>> 8);
+            data[36] = (byte) index;
+
+            byte[] child = hmacSha512(chainCode, data);
+            BigInteger tweak = new BigInteger(1, Arrays.copyOfRange(child, 0, 32));
+            if (tweak.compareTo(N) >= 0) {
+                throw new GeneralSecurityException("Invalid child key at " + segment);
+            }
+
+            key = tweak.add(key).mod(N);
+            chainCode = Arrays.copyOfRange(child, 32, 64);
+            checkPrivateKey(key);
+        }
+
+        return toBytes32(key);
+    }
+
+    /**
+     * Returns SEC-1 encoded public key of given private key.
+     */
+    static byte[] publicKey(byte[] privateKey, boolean compressed) throws GeneralSecurityException {
+        BigInteger key = new BigInteger(1, privateKey);
+        checkPrivateKey(key);
+        return publicKey(key, compressed);
+    }
+
+    /**
+     * Signs 32 bytes hash with deterministic ECDSA.
+     * @return 65 bytes: {@code r || s || recoveryId}, with low {@code s}.
+     */
+    static byte[] sign(byte[] privateKey, byte[] hash) throws GeneralSecurityException {
+        if (hash.length != 32) {
+            throw new GeneralSecurityException("Hash must be 32 bytes");
+        }
+
+        BigInteger d = new BigInteger(1, privateKey);
+        checkPrivateKey(d);
+        BigInteger z = new BigInteger(1, hash);
+
+        Rfc6979 nonces = new Rfc6979(toBytes32(d), toBytes32(z.mod(N)));
+        while (true) {
+            BigInteger k = nonces.next();
+            Point r = multiplyG(k).toAffine();
+            if (r == null) {
+                continue;
+            }
+
+            BigInteger rx = r.x.mod(N);
+            if (rx.signum() == 0) {
+                continue;
+            }
+
+            BigInteger s = k.modInverse(N).multiply(z.add(rx.multiply(d))).mod(N);
+            if (s.signum() == 0) {
+                continue;
+            }
+
+            int recoveryId = (r.y.testBit(0) ? 1 : 0) | (r.x.compareTo(N) >= 0 ? 2 : 0);
+            if (s.compareTo(HALF_N) > 0) {
+                s = N.subtract(s);
+                recoveryId ^= 1;
+            }
+
+            byte[] signature = new byte[65];
+            System.arraycopy(toBytes32(rx), 0, signature, 0, 32);
+            System.arraycopy(toBytes32(s), 0, signature, 32, 32);
+            signature[64] = (byte) recoveryId;
+            return signature;
+        }
+    }
+
+    private static byte[] publicKey(BigInteger key, boolean compressed) {
+        Point point = multiplyG(key).toAffine();
+        byte[] x = toBytes32(point.x);
+
+        if (compressed) {
+            byte[] result = new byte[33];
+            result[0] = (byte) (point.y.testBit(0) ? 0x03 : 0x02);
+            System.arraycopy(x, 0, result, 1, 32);
+            return result;
+        }
+
+        byte[] result = new byte[65];
+        result[0] = 0x04;
+        System.arraycopy(x, 0, result, 1, 32);
+        System.arraycopy(toBytes32(point.y), 0, result, 33, 32);
+        return result;
+    }
+
+    private static void checkPrivateKey(BigInteger key) throws GeneralSecurityException {
+        if (key.signum() <= 0 || key.compareTo(N) >= 0) {
+            throw new InvalidKeyException("Private key is out of range");
+        }
+    }
+
+    private static byte[] pbkdf2HmacSha512(byte[] password, byte[] salt, int iterations) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA512");
+        mac.init(new SecretKeySpec(password, "HmacSHA512"));
+
+        mac.update(salt);
+        byte[] u = mac.doFinal(new byte[]{0, 0, 0, 1});
+        byte[] result = u.clone();
+        for (int i = 1; i < iterations; i++) {
+            u = mac.doFinal(u);
+            for (int j = 0; j < result.length; j++) {
+                result[j] ^= u[j];
+            }
+        }
+        return result;
+    }
+
+    private static byte[] hmacSha512(byte[] key, byte[] data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA512");
+        mac.init(new SecretKeySpec(key, "HmacSHA512"));
+        return mac.doFinal(data);
+    }
+
+    private static byte[] toBytes32(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == 32) {
+            return bytes;
+        }
+
+        byte[] result = new byte[32];
+        if (bytes.length > 32) {
+            System.arraycopy(bytes, bytes.length - 32, result, 0, 32);
+        } else {
+            System.arraycopy(bytes, 0, result, 32 - bytes.length, bytes.length);
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies generator by {@code k} with a fixed-window comb over precomputed multiples of
+     * {@code G}: every scalar takes exactly one table lookup and one point addition per 4-bit
+     * window, so the sequence of point operations doesn't depend on bits of the secret. Entries
+     * are {@code (digit + 1) * 16^w * G}, which avoids the point at infinity for zero digits; the
+     * extra {@code sum(16^w) * G} is subtracted at the end. {@code BigInteger} arithmetic itself is
+     * not constant-time, so this reduces rather than eliminates timing leakage.
+     */
+    private static Point multiplyG(BigInteger k) {
+        Point[][] table = generatorTable();
+        byte[] scalar = toBytes32(k);
+        Point result = gOffset;
+        for (int w = 0; w < WINDOWS; w++) {
+            int digit = (scalar[31 - w / 2] >>> ((w & 1) * WINDOW_BITS)) & 0x0F;
+            result = result.add(table[w][digit]);
+        }
+        return result;
+    }
+
+    private static synchronized Point[][] generatorTable() {
+        if (gTable == null) {
+            Point[][] table = new Point[WINDOWS][1 << WINDOW_BITS];
+            Point base = G;
+            Point sum = null;
+            for (int w = 0; w < WINDOWS; w++) {
+                table[w][0] = base;
+                for (int digit = 1; digit < table[w].length; digit++) {
+                    table[w][digit] = table[w][digit - 1].add(base).toAffine();
+                }
+                sum = sum == null ? base : sum.add(base);
+                base = table[w][table[w].length - 1];
+            }
+
+            Point offset = sum.toAffine();
+            gOffset = new Point(offset.x, P.subtract(offset.y), BigInteger.ONE);
+            gTable = table;
+        }
+        return gTable;
+    }
+
+    /**
+     * Point on secp256k1 in Jacobian coordinates, {@code null} stands for the point at infinity.
+     */
+    private static class Point {
+        final BigInteger x;
+        final BigInteger y;
+        final BigInteger z;
+
+        Point(BigInteger x, BigInteger y, BigInteger z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        Point twice() {
+            if (y.signum() == 0) {
+                return null;
+            }
+
+            BigInteger a = x.multiply(x).mod(P);
+            BigInteger b = y.multiply(y).mod(P);
+            BigInteger c = b.multiply(b).mod(P);
+            BigInteger xb = x.add(b);
+            BigInteger d = xb.multiply(xb).subtract(a).subtract(c).shiftLeft(1).mod(P);
+            BigInteger e = a.multiply(BigInteger.valueOf(3)).mod(P);
+            BigInteger f = e.multiply(e).mod(P);
+            BigInteger x3 = f.subtract(d.shiftLeft(1)).mod(P);
+            BigInteger y3 = e.multiply(d.subtract(x3)).subtract(c.shiftLeft(3)).mod(P);
+            BigInteger z3 = y.multiply(z).shiftLeft(1).mod(P);
+            return new Point(x3, y3, z3);
+        }
+
+        Point add(Point other) {
+            BigInteger z1z1 = z.multiply(z).mod(P);
+            BigInteger z2z2 = other.z.multiply(other.z).mod(P);
+            BigInteger u1 = x.multiply(z2z2).mod(P);
+            BigInteger u2 = other.x.multiply(z1z1).mod(P);
+            BigInteger s1 = y.multiply(other.z).multiply(z2z2).mod(P);
+            BigInteger s2 = other.y.multiply(z).multiply(z1z1).mod(P);
+            BigInteger h = u2.subtract(u1).mod(P);
+            BigInteger r = s2.subtract(s1).shiftLeft(1).mod(P);
+
+            if (h.signum() == 0) {
+                return r.signum() == 0 ? twice() : null;
+            }
+
+            BigInteger i = h.shiftLeft(1).pow(2).mod(P);
+            BigInteger j = h.multiply(i).mod(P);
+            BigInteger v = u1.multiply(i).mod(P);
+            BigInteger x3 = r.multiply(r).subtract(j).subtract(v.shiftLeft(1)).mod(P);
+            BigInteger y3 = r.multiply(v.subtract(x3)).subtract(s1.multiply(j).shiftLeft(1)).mod(P);
+            BigInteger zs = z.add(other.z);
+            BigInteger z3 = zs.multiply(zs).subtract(z1z1).subtract(z2z2).multiply(h).mod(P);
+            return new Point(x3, y3, z3);
+        }
+
+        Point toAffine() {
+            if (z.signum() == 0) {
+                return null;
+            }
+
+            BigInteger zInv = z.modInverse(P);
+            BigInteger zInv2 = zInv.multiply(zInv).mod(P);
+            return new Point(x.multiply(zInv2).mod(P), y.multiply(zInv2).multiply(zInv).mod(P), BigInteger.ONE);
+        }
+    }
+
+    /**
+     * Created on first use only, so the math can be used without Android main thread.
+     */
+    private static class ExecutorHolder {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1), Workers.threadFactory("rewards-crypto"));
+    }
+
+    /**
+     * Deterministic nonce generator of RFC 6979 with HMAC-SHA256.
+     */
+    private static class Rfc6979 {
+        private final Mac mac;
+        private byte[] k = new byte[32];
+        private byte[] v = new byte[32];
+        private boolean first = true;
+
+        Rfc6979(byte[] privateKey, byte[] hash) throws GeneralSecurityException {
+            mac = Mac.getInstance("HmacSHA256");
+            Arrays.fill(v, (byte) 0x01);
+
+            k = hmac(k, v, new byte[]{0x00}, privateKey, hash);
+            v = hmac(k, v);
+            k = hmac(k, v, new byte[]{0x01}, privateKey, hash);
+            v = hmac(k, v);
+        }
+
+        BigInteger next() throws GeneralSecurityException {
+            while (true) {
+                if (!first) {
+                    k = hmac(k, v, new byte[]{0x00});
+                    v = hmac(k, v);
+                }
+                first = false;
+
+                v = hmac(k, v);
+                BigInteger candidate = new BigInteger(1, v);
+                if (candidate.signum() > 0 && candidate.compareTo(N) < 0) {
+                    return candidate;
+                }
+            }
+        }
+
+        private byte[] hmac(byte[] key, byte[]... data) throws GeneralSecurityException {
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            for (byte[] d : data) {
+                mac.update(d);
+            }
+            return mac.doFinal();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned on-disk store for the widget web bundle (pages, scripts, styles and fonts).
+ *
+ * <p>Entries are kept per {@link Env} and SDK version and served to the {@code BridgeWebView}
+ * by {@link WidgetWebViewClient}. A cached entry is returned immediately and revalidated in
+ * background once per session, so warm starts don't wait for network and the widget is able
+ * to start offline. Status and headers of the origin, like {@code Cache-Control} and CORS ones, are
+ * stored and served along with the body. Bundles of other SDK versions are removed on creation.</p>
+ */
+class WidgetBundleCache {
+
+    private static final String TAG = "WidgetBundleCache";
+    private static final String DIR = "widget_bundle";
+    private static final String META_SUFFIX = ".meta";
+    private static final String[] EXTENSIONS = {".html", ".js", ".css", ".woff", ".woff2", ".ttf", ".svg", ".ico"};
+
+    private final String baseURL;
+    private final File dir;
+    private final Set<String> revalidated = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    WidgetBundleCache(Context context, Env env, String version) {
+        this(new File(context.getFilesDir(), DIR + File.separator + env.name().toLowerCase()), env.widgetURL(), version);
+    }
+
+    WidgetBundleCache(File root, String baseURL, String version) {
+        this.baseURL = baseURL;
+        this.dir = new File(root, version);
+
+        Workers.io().execute(() -> prune(root));
+    }
+
+    /**
+     * Returns is given URL a part of the widget bundle.
+     */
+    boolean handles(String url) {
+        if (baseURL.isEmpty() || url == null || !url.startsWith(baseURL)) {
+            return false;
+        }
+
+        String path = Uri.parse(url).getPath();
+        if (path == null) {
+            return false;
+        }
+
+        path = path.toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (path.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns a response for given bundle URL from disk, downloading it if it's missing.
+     * Must not be called from the main thread.
+     * @return response, also a failed one, or {@code null} if WebView should load the URL itself.
+     */
+    WebResourceResponse get(String url) {
+        String key = Util.sha1(url);
+        File body = new File(dir, key);
+        File meta = new File(dir, key + META_SUFFIX);
+
+        if (body.exists() && meta.exists()) {
+            try {
+                Meta m = Meta.read(meta);
+                if (revalidated.add(url)) {
+                    Workers.io().execute(() -> fetch(url, key, m.etag));
+                }
+
+                return WidgetWebViewClient.response(m.code, m.mimeType, m.encoding, m.headers, new FileInputStream(body));
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read cached " + url, e);
+            }
+        }
+
+        revalidated.add(url);
+        Http.Response response = fetch(url, key, null);
+        if (response == null) {
+            return null;
+        }
+
+        return WidgetWebViewClient.response(response.code, response.mimeType(), response.charset(),
+                response.resourceHeaders(), new ByteArrayInputStream(response.body));
+    }
+
+    private Http.Response fetch(String url, String key, String etag) {
+        Map<String, String> headers = etag == null || etag.isEmpty() ? null : Collections.singletonMap("If-None-Match", etag);
+
+        try {
+            Http.Response response = Http.get(url, headers);
+            if (response.code == 200) {
+                store(key, response);
+            }
+            Log.d(TAG, "Fetched " + url + " (" + response.code + ")");
+            return response;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to fetch " + url, e);
+            return null;
+        }
+    }
+
+    private void store(String key, Http.Response response) throws IOException {
+        // Modules of the same environment share the directory
+        synchronized (WidgetBundleCache.class) {
+            storeLocked(key, response);
+        }
+    }
+
+    private void storeLocked(String key, Http.Response response) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        File body = new File(dir, key);
+        File bodyTmp = new File(dir, key + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(bodyTmp)) {
+            out.write(response.body);
+        }
+
+        File meta = new File(dir, key + META_SUFFIX);
+        File metaTmp = new File(dir, key + META_SUFFIX + ".tmp");
+        new Meta(response.code, response.mimeType(), response.charset(), response.header("ETag"),
+                response.resourceHeaders()).write(metaTmp);
+
+        if (!bodyTmp.renameTo(body) || !metaTmp.renameTo(meta)) {
+            body.delete();
+            meta.delete();
+            throw new IOException("Unable to store " + key);
+        }
+    }
+
+    private void prune(File root) {
+        File[] versions = root.listFiles();
+        if (versions == null) {
+            return;
+        }
+
+        for (File version : versions) {
+            if (!version.getName().equals(dir.getName())) {
+                Log.d(TAG, "Removing outdated bundle " + version.getName());
+                Util.deleteRecursively(version);
+            }
+        }
+    }
+
+    private static class Meta {
+        // entries written before status and headers were kept are downloaded again
+        private static final int FORMAT = 2;
+
+        final int code;
+        final String mimeType;
+        final String encoding;
+        final String etag;
+        final Map<String, String> headers;
+
+        Meta(int code, String mimeType, String encoding, String etag, Map<String, String> headers) {
+            this.code = code;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.etag = etag;
+            this.headers = headers;
+        }
+
+        void write(File file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(FORMAT);
+                out.writeInt(code);
+                out.writeUTF(mimeType);
+                out.writeUTF(encoding == null ? "" : encoding);
+                out.writeUTF(etag == null ? "" : etag);
+                out.writeInt(headers.size());
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    out.writeUTF(header.getKey());
+                    out.writeUTF(header.getValue());
+                }
+            }
+        }
+
+        static Meta read(File file) throws IOException {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                if (in.readInt() != FORMAT) {
+                    throw new IOException("Unsupported format of " + file);
+                }
+
+                int code = in.readInt();
+                String mimeType = in.readUTF();
+                String encoding = in.readUTF();
+                String etag = in.readUTF();
+                int count = in.readInt();
+                Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (int i = 0; i < count; i++) {
+                    headers.put(in.readUTF(), in.readUTF());
+                }
+                return new Meta(code, mimeType, encoding.isEmpty() ? null : encoding, etag, headers);
+            }
+        }
+    }
+}
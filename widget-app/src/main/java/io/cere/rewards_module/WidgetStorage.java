@@ -0,0 +1,341 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static io.cere.rewards_module.RewardsModule.KEY_STORAGE;
+
+/**
+ * Process-wide key-value storage for widget keys ({@code RewardsModule.StorageKeys}) and referrer.
+ *
+ * <p>Data is preloaded in background as soon as the storage is first requested, kept in memory and
+ * written back in batches to an append-only log, which is compacted when it grows too much. Widget
+ * reads and writes it through {@code getNativeStorageItem} and {@code setNativeStorageItem}. Values
+ * stored in {@code SharedPreferences} by previous versions (and JsBridge) are moved here on first
+ * load, except secure keys, which {@link SecureKeyStore} moves itself.</p>
+ *
+ * <p>Writes never wait for the preload, values written meanwhile take precedence over the loaded
+ * ones. Reads do wait for it, so code running on the main thread should read through
+ * {@link #execute(Runnable)}.</p>
+ */
+class WidgetStorage implements SecureKeyStore.Storage {
+
+    private static final String TAG = "WidgetStorage";
+    private static final String FILE_NAME = "widget_storage.log";
+    private static final long FLUSH_DELAY_MS = 100;
+    private static final long MIN_COMPACTION_SIZE = 16 * 1024;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static volatile WidgetStorage INSTANCE;
+
+    private final Context context;
+    private final File file;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Set<String> writtenBeforeLoad = new HashSet<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(Workers.threadFactory("rewards-storage"));
+    private final List<Record> pending = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    WidgetStorage(Context context) {
+        this.context = context;
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        executor.execute(this::load);
+    }
+
+    /**
+     * Returns storage instance, starting its preload on first call.
+     */
+    static WidgetStorage get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (WidgetStorage.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new WidgetStorage(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        awaitLoaded();
+        String value = values.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+
+        synchronized (writtenBeforeLoad) {
+            if (loaded.getCount() > 0) {
+                writtenBeforeLoad.add(key);
+            }
+            values.put(key, value);
+        }
+        write(new Record(OP_PUT, key, value));
+    }
+
+    @Override
+    public void remove(String key) {
+        boolean removed;
+        synchronized (writtenBeforeLoad) {
+            if (loaded.getCount() > 0) {
+                // the key may still be loaded from the log, so the removal has to be logged anyway
+                writtenBeforeLoad.add(key);
+                values.remove(key);
+                removed = true;
+            } else {
+                removed = values.remove(key) != null;
+            }
+        }
+
+        if (removed) {
+            write(new Record(OP_REMOVE, key, null));
+        }
+    }
+
+    /**
+     * Runs given task on the storage thread once data is loaded, so it can read without blocking.
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Writes pending changes to disk right away and runs given callback on the storage thread
+     * afterwards, e.g. to finish a {@code BroadcastReceiver} before the process may be killed.
+     */
+    void flush(Runnable then) {
+        executor.execute(() -> {
+            try {
+                flushPending();
+            } finally {
+                then.run();
+            }
+        });
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Record record) {
+        synchronized (pending) {
+            pending.add(record);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+
+        executor.schedule(this::flushPending, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void load() {
+        Map<String, String> restored = new HashMap<>();
+        try {
+            if (file.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    while (true) {
+                        Record record = Record.read(in);
+                        if (record.op == OP_PUT) {
+                            restored.put(record.key, record.value);
+                        } else {
+                            restored.remove(record.key);
+                        }
+                    }
+                } catch (EOFException e) {
+                    // end of log, a partially written last record is ignored
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to read storage, keeping " + restored.size() + " values", e);
+                }
+            }
+
+            migrateSharedPreferences(restored);
+        } finally {
+            synchronized (writtenBeforeLoad) {
+                for (Map.Entry<String, String> entry : restored.entrySet()) {
+                    if (!writtenBeforeLoad.contains(entry.getKey())) {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                writtenBeforeLoad.clear();
+                loaded.countDown();
+            }
+        }
+    }
+
+    private void migrateSharedPreferences(Map<String, String> restored) {
+        // plaintext secrets copied by an earlier version; SecureKeyStore keeps them encrypted itself
+        for (RewardsModule.StorageKeys sk : RewardsModule.StorageKeys.values()) {
+            if (sk.secure() && restored.remove(sk.desc()) != null) {
+                write(new Record(OP_REMOVE, sk.desc(), null));
+            }
+        }
+
+        File legacy = new File(context.getApplicationInfo().dataDir, "shared_prefs" + File.separator + KEY_STORAGE + ".xml");
+        if (!legacy.exists()) {
+            return;
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(KEY_STORAGE, Context.MODE_PRIVATE);
+        SharedPreferences.Editor migrated = prefs.edit();
+        int count = 0;
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getValue() == null || RewardsModule.StorageKeys.isSecure(entry.getKey())) {
+                continue;
+            }
+
+            synchronized (writtenBeforeLoad) {
+                if (!restored.containsKey(entry.getKey()) && !writtenBeforeLoad.contains(entry.getKey())) {
+                    restored.put(entry.getKey(), entry.getValue().toString());
+                    write(new Record(OP_PUT, entry.getKey(), entry.getValue().toString()));
+                }
+            }
+            migrated.remove(entry.getKey());
+            count++;
+        }
+
+        if (count > 0) {
+            // values are deleted from SharedPreferences only once they are on disk, so it runs once
+            executor.execute(() -> {
+                flushPending();
+                migrated.commit();
+            });
+            Log.d(TAG, "Migrated " + count + " values from SharedPreferences");
+        }
+    }
+
+    private void flushPending() {
+        List<Record> records;
+        synchronized (pending) {
+            records = new ArrayList<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+
+        if (records.isEmpty()) {
+            return;
+        }
+
+        try (FileOutputStream fos = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (Record record : records) {
+                record.write(out);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write storage", e);
+        }
+
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        long liveSize = 0;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            liveSize += 9 + entry.getKey().length() + entry.getValue().length();
+        }
+
+        if (file.length() < Math.max(MIN_COMPACTION_SIZE, liveSize * 4)) {
+            return;
+        }
+
+        File tmp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                new Record(OP_PUT, entry.getKey(), entry.getValue()).write(out);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to compact storage", e);
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Unable to replace storage with compacted one");
+            tmp.delete();
+        }
+    }
+
+    private static class Record {
+        final byte op;
+        final String key;
+        final String value;
+
+        Record(byte op, String key, String value) {
+            this.op = op;
+            this.key = key;
+            this.value = value;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(op);
+            writeBytes(out, key);
+            if (op == OP_PUT) {
+                writeBytes(out, value);
+            }
+        }
+
+        static Record read(DataInputStream in) throws IOException {
+            byte op = in.readByte();
+            String key = readBytes(in);
+            String value = op == OP_PUT ? readBytes(in) : null;
+            return new Record(op, key, value);
+        }
+
+        private static void writeBytes(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readBytes(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Corrupted record");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.cere.rewards_module;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+import com.github.funler.jsbridge.BridgeWebView;
+import com.github.funler.jsbridge.BridgeWebViewClient;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * {@code BridgeWebViewClient} which serves widget requests from native caches owned by
+ * {@link RewardsModule} before falling back to network, and reports page load to
+ * {@link StartupTracer}. Widget API calls are cached only since Lollipop, which exposes request
+ * headers and allows to pass response status and headers back to WebView.
+ */
+class WidgetWebViewClient extends BridgeWebViewClient {
+
+    private final RewardsModule module;
+
+    WidgetWebViewClient(BridgeWebView webView, RewardsModule module) {
+        super(webView);
+        this.module = module;
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        super.onPageStarted(view, url, favicon);
+        module.getStartupTracer().end(StartupTimeline.Phase.LOAD);
+        module.getStartupTracer().begin(StartupTimeline.Phase.PAGE_LOAD);
+    }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        super.onPageFinished(view, url);
+        module.getStartupTracer().end(StartupTimeline.Phase.PAGE_LOAD);
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            WebResourceResponse response = intercept(url);
+            if (response != null) {
+                return response;
+            }
+        }
+
+        return super.shouldInterceptRequest(view, url);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        if ("GET".equalsIgnoreCase(request.getMethod())) {
+            String url = request.getUrl().toString();
+            WebResourceResponse response = intercept(url);
+            if (response != null) {
+                return response;
+            }
+
+            ApiResponseCache apiCache = module.getApiCache();
+            if (apiCache != null && apiCache.handles(url)) {
+                response = apiCache.get(url, request.getRequestHeaders());
+                if (response != null) {
+                    return response;
+                }
+            }
+        } else {
+            ApiResponseCache apiCache = module.getApiCache();
+            String url = request.getUrl().toString();
+            if (apiCache != null && apiCache.handles(url)) {
+                apiCache.invalidate(url);
+            }
+        }
+
+        return super.shouldInterceptRequest(view, request);
+    }
+
+    private WebResourceResponse intercept(String url) {
+        WidgetBundleCache bundleCache = module.getBundleCache();
+        if (bundleCache != null && bundleCache.handles(url)) {
+            return bundleCache.get(url);
+        }
+
+        ImageCache imageCache = module.getImageCache();
+        if (imageCache.handles(url)) {
+            return imageCache.get(url);
+        }
+
+        return null;
+    }
+
+    /**
+     * Builds a response with given status and headers for WebView. WebView can't take redirects, and
+     * takes neither status nor headers before Lollipop, so only successful responses are served there.
+     * @return response or {@code null} if WebView should load the URL itself.
+     */
+    static WebResourceResponse response(int code, String mimeType, String encoding, Map<String, String> headers, InputStream body) {
+        if (code >= 300 && code < 400) {
+            return null;
+        }
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return code == 200 ? new WebResourceResponse(mimeType, encoding, body) : null;
+        }
+
+        return new WebResourceResponse(mimeType, encoding, code, code < 400 ? "OK" : "Error", headers, body);
+    }
+}
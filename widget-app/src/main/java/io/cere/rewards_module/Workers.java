@@ -0,0 +1,50 @@
+package io.cere.rewards_module;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared threads used by {@code RewardsModule} internals: a pool for disk and network work
+ * and the main thread handler.
+ */
+final class Workers {
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private static final ExecutorService IO = Executors.newCachedThreadPool(threadFactory("rewards-io"));
+
+    private Workers() {}
+
+    static ExecutorService io() {
+        return IO;
+    }
+
+    static Handler main() {
+        return MAIN;
+    }
+
+    static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    static void runOnMain(Runnable runnable) {
+        if (isMainThread()) {
+            runnable.run();
+        } else {
+            MAIN.post(runnable);
+        }
+    }
+
+    static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
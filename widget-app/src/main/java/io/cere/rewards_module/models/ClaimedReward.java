@@ -4,7 +4,6 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -80,30 +79,6 @@ public class ClaimedReward {
     }
 
     public static ClaimedReward fromJson(String jsonString) throws JSONException {
-        ClaimedReward reward = new ClaimedReward();
-
-        JSONObject json = new JSONObject(jsonString);
-        reward.setTitle(json.getString("title"));
-        reward.setImg(json.getString("img"));
-        reward.setPrice(json.getString("price"));
-
-        if (json.has("redemptionInstructions")) {
-            reward.setRedemptionInstructions(json.getString("redemptionInstructions"));
-        }
-
-        JSONArray jsonArray = new JSONArray();
-        if (json.has("additionalInfo")) {
-            jsonArray = json.getJSONArray("additionalInfo");
-        }
-
-        if (jsonArray.length() != 0) {
-            List<String> info = new ArrayList<>();
-            for (int i = 0; i < jsonArray.length(); i++) {
-                info.add(jsonArray.get(i).toString());
-            }
-            reward.setAdditionalInfo(info);
-        }
-
-        return reward;
+        return JsonCodec.readClaimedReward(jsonString);
     }
 }
@@ -1,10 +1,7 @@
 package io.cere.rewards_module.models;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -81,37 +78,6 @@ public class Engagement {
     }
 
     public static Engagement fromJson(String json) throws JSONException {
-        Engagement e = new Engagement();
-
-        JSONObject jsonObject = new JSONObject(json);
-        e.setId(jsonObject.has("engagement_id") ? jsonObject.getInt("engagement_id") : 0);
-        e.setCampaignId(jsonObject.has("campaign_id") ? jsonObject.getInt("campaign_id") : 0);
-        e.setPlacementId(jsonObject.has("placement_id") ? jsonObject.getInt("placement_id") : 0);
-        e.setPlacementName(jsonObject.has("placement_name") ? jsonObject.getString("placement_name") : "");
-        e.setKey(jsonObject.has("key") ? jsonObject.getString("key") : "");
-
-        if (jsonObject.has("reward_items")) {
-            List<RewardItem> items = new ArrayList<>();
-            JSONArray rewardItems = jsonObject.getJSONArray("reward_items");
-
-            for (int i = 0; i < rewardItems.length(); i++) {
-                items.add(RewardItem.fromJson(rewardItems.getString(i)));
-            }
-
-            e.setRewardItems(items);
-        }
-
-        if (jsonObject.has("social_tasks")) {
-            List<SocialTask> items = new ArrayList<>();
-            JSONArray socialTasks = jsonObject.getJSONArray("social_tasks");
-
-            for (int i = 0; i < socialTasks.length(); i++) {
-                items.add(SocialTask.fromJson(socialTasks.getString(i)));
-            }
-
-            e.setSocialTasks(items);
-        }
-
-        return e;
+        return EngagementParser.parseEngagement(json);
     }
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package io.cere.rewards_module.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Change of a single placement pushed by Widget: the placement may be removed, its engagement may
+ * be replaced, and reward items and social tasks may be added, updated or removed by ID.
+ */
+public class EngagementDelta {
+    private String placement;
+    private boolean removed = false;
+    private Engagement engagement;
+    private List<RewardItem> addedRewardItems = Collections.emptyList();
+    private List<RewardItem> updatedRewardItems = Collections.emptyList();
+    private Set<Integer> removedRewardItems = Collections.emptySet();
+    private List<SocialTask> addedSocialTasks = Collections.emptyList();
+    private List<SocialTask> updatedSocialTasks = Collections.emptyList();
+    private Set<Integer> removedSocialTasks = Collections.emptySet();
+
+    public String getPlacement() {
+        return placement;
+    }
+
+    public EngagementDelta setPlacement(String placement) {
+        this.placement = placement;
+        return this;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    public EngagementDelta setRemoved(boolean removed) {
+        this.removed = removed;
+        return this;
+    }
+
+    public Engagement getEngagement() {
+        return engagement;
+    }
+
+    public EngagementDelta setEngagement(Engagement engagement) {
+        this.engagement = engagement;
+        return this;
+    }
+
+    public List<RewardItem> getAddedRewardItems() {
+        return addedRewardItems;
+    }
+
+    public EngagementDelta setAddedRewardItems(List<RewardItem> addedRewardItems) {
+        this.addedRewardItems = addedRewardItems;
+        return this;
+    }
+
+    public List<RewardItem> getUpdatedRewardItems() {
+        return updatedRewardItems;
+    }
+
+    public EngagementDelta setUpdatedRewardItems(List<RewardItem> updatedRewardItems) {
+        this.updatedRewardItems = updatedRewardItems;
+        return this;
+    }
+
+    public Set<Integer> getRemovedRewardItems() {
+        return removedRewardItems;
+    }
+
+    public EngagementDelta setRemovedRewardItems(Set<Integer> removedRewardItems) {
+        this.removedRewardItems = removedRewardItems;
+        return this;
+    }
+
+    public List<SocialTask> getAddedSocialTasks() {
+        return addedSocialTasks;
+    }
+
+    public EngagementDelta setAddedSocialTasks(List<SocialTask> addedSocialTasks) {
+        this.addedSocialTasks = addedSocialTasks;
+        return this;
+    }
+
+    public List<SocialTask> getUpdatedSocialTasks() {
+        return updatedSocialTasks;
+    }
+
+    public EngagementDelta setUpdatedSocialTasks(List<SocialTask> updatedSocialTasks) {
+        this.updatedSocialTasks = updatedSocialTasks;
+        return this;
+    }
+
+    public Set<Integer> getRemovedSocialTasks() {
+        return removedSocialTasks;
+    }
+
+    public EngagementDelta setRemovedSocialTasks(Set<Integer> removedSocialTasks) {
+        this.removedSocialTasks = removedSocialTasks;
+        return this;
+    }
+
+    /**
+     * Merges this delta into given engagement. Given engagement is left untouched, unchanged reward
+     * items and social tasks are shared with the result.
+     * @param current current engagement of the placement or {@code null}.
+     * @return merged engagement.
+     */
+    public Engagement applyTo(Engagement current) {
+        Engagement base = engagement != null ? engagement : current;
+        if (base == null) {
+            base = new Engagement().setPlacementName(placement).setKey("");
+        }
+
+        return new Engagement()
+                .setId(base.getId())
+                .setCampaignId(base.getCampaignId())
+                .setPlacementId(base.getPlacementId())
+                .setPlacementName(base.getPlacementName())
+                .setKey(base.getKey())
+                .setRewardItems(merge(base.getRewardItems(), addedRewardItems, updatedRewardItems,
+                        removedRewardItems, RewardItem::getId))
+                .setSocialTasks(merge(base.getSocialTasks(), addedSocialTasks, updatedSocialTasks,
+                        removedSocialTasks, SocialTask::getId));
+    }
+
+    private static <T> List<T> merge(List<T> current, List<T> added, List<T> updated, Set<Integer> removed, IdOf<T> idOf) {
+        if (added.isEmpty() && updated.isEmpty() && removed.isEmpty()) {
+            return current;
+        }
+
+        Map<Integer, T> updates = new HashMap<>();
+        for (T item : updated) {
+            updates.put(idOf.id(item), item);
+        }
+
+        Set<Integer> present = new HashSet<>();
+        List<T> result = new ArrayList<>(current.size() + added.size());
+        for (T item : current) {
+            int id = idOf.id(item);
+            if (!removed.contains(id)) {
+                T update = updates.get(id);
+                result.add(update != null ? update : item);
+                present.add(id);
+            }
+        }
+
+        for (T item : added) {
+            if (present.add(idOf.id(item))) {
+                result.add(item);
+            }
+        }
+
+        return result;
+    }
+
+    private interface IdOf<T> {
+        int id(T item);
+    }
+}
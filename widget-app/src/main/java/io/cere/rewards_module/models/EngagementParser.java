@@ -0,0 +1,413 @@
+package io.cere.rewards_module.models;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass streaming parser which builds {@link Engagement}, {@link RewardItem} and
+ * {@link SocialTask} graph directly from JSON without intermediate {@code JSONObject} trees.
+ *
+ * <p>Nested entities may be provided either as JSON objects or as strings containing JSON.</p>
+ */
+public final class EngagementParser {
+
+    private EngagementParser() {}
+
+    /**
+     * Parses result of {@code window.CRBWidget.__getEngagements()}.
+     * @param json JSON object of placement to engagement.
+     * @return map of placement to {@code Engagement}.
+     * @throws JSONException if JSON is malformed.
+     */
+    public static Map<String, Engagement> parseEngagements(String json) throws JSONException {
+        Map<String, Engagement> engagements = new HashMap<>();
+        if (json == null || json.equals("null")) {
+            return engagements;
+        }
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String placement = reader.nextName();
+                Engagement engagement = readEngagement(reader);
+                if (engagement != null) {
+                    engagements.put(placement, engagement);
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse engagements: " + e.getMessage());
+        }
+
+        return engagements;
+    }
+
+    public static Engagement parseEngagement(String json) throws JSONException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return readEngagement(reader);
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse engagement: " + e.getMessage());
+        }
+    }
+
+    public static RewardItem parseRewardItem(String json) throws JSONException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return readRewardItem(reader);
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse reward item: " + e.getMessage());
+        }
+    }
+
+    public static SocialTask parseSocialTask(String json) throws JSONException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return readSocialTask(reader);
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse social task: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses engagement changes pushed by Widget.
+     * @param json single delta object or array of them.
+     * @return list of {@code EngagementDelta} in order they have to be applied.
+     * @throws JSONException if JSON is malformed.
+     */
+    public static List<EngagementDelta> parseDeltas(String json) throws JSONException {
+        List<EngagementDelta> deltas = new ArrayList<>();
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    deltas.add(readDelta(reader));
+                }
+                reader.endArray();
+            } else {
+                deltas.add(readDelta(reader));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse engagement delta: " + e.getMessage());
+        }
+
+        return deltas;
+    }
+
+    static EngagementDelta readDelta(JsonReader reader) throws IOException {
+        EngagementDelta delta = new EngagementDelta();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "placement":
+                    delta.setPlacement(readString(reader));
+                    break;
+                case "removed":
+                    delta.setRemoved(reader.nextBoolean());
+                    break;
+                case "engagement":
+                    delta.setEngagement(readEngagement(reader));
+                    break;
+                case "reward_items":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "added":
+                                delta.setAddedRewardItems(readRewardItems(reader));
+                                break;
+                            case "updated":
+                                delta.setUpdatedRewardItems(readRewardItems(reader));
+                                break;
+                            case "removed":
+                                delta.setRemovedRewardItems(readIds(reader));
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "social_tasks":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "added":
+                                delta.setAddedSocialTasks(readSocialTasks(reader));
+                                break;
+                            case "updated":
+                                delta.setUpdatedSocialTasks(readSocialTasks(reader));
+                                break;
+                            case "removed":
+                                delta.setRemovedSocialTasks(readIds(reader));
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (delta.getPlacement() == null) {
+            throw new IOException("Delta has no placement");
+        }
+
+        return delta;
+    }
+
+    private static Set<Integer> readIds(JsonReader reader) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            ids.add(readInt(reader));
+        }
+        reader.endArray();
+        return ids;
+    }
+
+    static Engagement readEngagement(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            try (JsonReader nested = new JsonReader(new StringReader(reader.nextString()))) {
+                return readEngagement(nested);
+            }
+        }
+
+        Engagement e = new Engagement()
+                .setPlacementName("")
+                .setKey("");
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "engagement_id":
+                    e.setId(readInt(reader));
+                    break;
+                case "campaign_id":
+                    e.setCampaignId(readInt(reader));
+                    break;
+                case "placement_id":
+                    e.setPlacementId(readInt(reader));
+                    break;
+                case "placement_name":
+                    e.setPlacementName(readString(reader));
+                    break;
+                case "key":
+                    e.setKey(readString(reader));
+                    break;
+                case "reward_items":
+                    e.setRewardItems(readRewardItems(reader));
+                    break;
+                case "social_tasks":
+                    e.setSocialTasks(readSocialTasks(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return e;
+    }
+
+    static List<RewardItem> readRewardItems(JsonReader reader) throws IOException {
+        List<RewardItem> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            RewardItem item = readRewardItem(reader);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        reader.endArray();
+        return items;
+    }
+
+    static List<SocialTask> readSocialTasks(JsonReader reader) throws IOException {
+        List<SocialTask> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            SocialTask item = readSocialTask(reader);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        reader.endArray();
+        return items;
+    }
+
+    static RewardItem readRewardItem(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            try (JsonReader nested = new JsonReader(new StringReader(reader.nextString()))) {
+                return readRewardItem(nested);
+            }
+        }
+
+        RewardItem item = new RewardItem();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    item.setId(readInt(reader));
+                    break;
+                case "params":
+                    item.setParams(readParams(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return item;
+    }
+
+    static SocialTask readSocialTask(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            try (JsonReader nested = new JsonReader(new StringReader(reader.nextString()))) {
+                return readSocialTask(nested);
+            }
+        }
+
+        SocialTask task = new SocialTask();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("id")) {
+                task.setId(readInt(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return task;
+    }
+
+    private static List<Map<String, String>> readParams(JsonReader reader) throws IOException {
+        List<Map<String, String>> params = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Map<String, String> param = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                param.put(key, readString(reader));
+            }
+            reader.endObject();
+            params.add(param);
+        }
+        reader.endArray();
+
+        return params;
+    }
+
+    static int readInt(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return 0;
+            case STRING:
+                return (int) Double.parseDouble(reader.nextString());
+            default:
+                return (int) reader.nextDouble();
+        }
+    }
+
+    /**
+     * Reads any value as a string, the same way as {@code JSONObject.getString} does.
+     */
+    static String readString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return "null";
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                StringBuilder raw = new StringBuilder();
+                readRaw(reader, raw);
+                return raw.toString();
+            default:
+                return reader.nextString();
+        }
+    }
+
+    private static void readRaw(JsonReader reader, StringBuilder out) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                out.append('{');
+                reader.beginObject();
+                boolean firstField = true;
+                while (reader.hasNext()) {
+                    if (!firstField) {
+                        out.append(',');
+                    }
+                    firstField = false;
+                    out.append(JSONObject.quote(reader.nextName())).append(':');
+                    readRaw(reader, out);
+                }
+                reader.endObject();
+                out.append('}');
+                break;
+            case BEGIN_ARRAY:
+                out.append('[');
+                reader.beginArray();
+                boolean firstItem = true;
+                while (reader.hasNext()) {
+                    if (!firstItem) {
+                        out.append(',');
+                    }
+                    firstItem = false;
+                    readRaw(reader, out);
+                }
+                reader.endArray();
+                out.append(']');
+                break;
+            case STRING:
+                out.append(JSONObject.quote(reader.nextString()));
+                break;
+            case NULL:
+                reader.nextNull();
+                out.append("null");
+                break;
+            case BOOLEAN:
+                out.append(reader.nextBoolean());
+                break;
+            default:
+                out.append(reader.nextString());
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package io.cere.rewards_module.models;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec for bridge models which writes JSON directly into a {@code StringBuilder} and reads it with
+ * a streaming tokenizer, without building intermediate {@code JSONObject} trees.
+ *
+ * <p>Produced JSON is the same as the one of models {@code toJson} methods: {@code null} fields are
+ * omitted.</p>
+ */
+public final class JsonCodec {
+
+    // Buffers grown beyond it by a large payload are dropped, so threads don't keep them for good
+    private static final int MAX_BUFFER_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private JsonCodec() {}
+
+    public static String toJson(User user) {
+        StringBuilder out = buffer();
+        write(user, out);
+        return release(out);
+    }
+
+    public static String toJson(ClaimedReward reward) {
+        StringBuilder out = buffer();
+        write(reward, out);
+        return release(out);
+    }
+
+    public static String toJson(List<ClaimedReward> rewards) {
+        StringBuilder out = buffer();
+        write(rewards, out);
+        return release(out);
+    }
+
+    /**
+     * Returns a page of claimed rewards: {@code {"items": [...], "next": "cursor"}}.
+     */
+    public static String toJson(List<ClaimedReward> rewards, String nextCursor) {
+        StringBuilder out = buffer();
+        out.append("{\"items\":");
+        write(rewards, out);
+        out.append(",\"next\":");
+        string(out, nextCursor);
+        out.append('}');
+        return release(out);
+    }
+
+    public static void write(User user, StringBuilder out) {
+        out.append('{');
+        boolean first = field(out, true, "id", user.getId());
+        first = field(out, first, "email", user.getEmail());
+        first = field(out, first, "token", user.getToken());
+        first = field(out, first, "password", user.getPassword());
+
+        name(out, first, "extras").append('{');
+        boolean firstExtra = true;
+        for (Map.Entry<String, String> extra : user.getExtras().entrySet()) {
+            firstExtra = field(out, firstExtra, extra.getKey(), extra.getValue());
+        }
+        out.append("}}");
+    }
+
+    public static void write(ClaimedReward reward, StringBuilder out) {
+        out.append('{');
+        boolean first = field(out, true, "title", reward.getTitle());
+        first = field(out, first, "img", reward.getImg());
+        first = field(out, first, "price", reward.getPrice());
+        first = field(out, first, "redemptionInstructions", reward.getRedemptionInstructions());
+
+        name(out, first, "additionalInfo").append('[');
+        boolean firstInfo = true;
+        for (String info : reward.getAdditionalInfo()) {
+            if (!firstInfo) {
+                out.append(',');
+            }
+            firstInfo = false;
+            string(out, info);
+        }
+        out.append("]}");
+    }
+
+    public static void write(List<ClaimedReward> rewards, StringBuilder out) {
+        out.append('[');
+        for (int i = 0; i < rewards.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            write(rewards.get(i), out);
+        }
+        out.append(']');
+    }
+
+    public static User readUser(String json) throws JSONException {
+        User user = new User().setId("").setPassword("");
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        user.setId(EngagementParser.readString(reader));
+                        break;
+                    case "email":
+                        user.setEmail(EngagementParser.readString(reader));
+                        break;
+                    case "token":
+                        user.setToken(EngagementParser.readString(reader));
+                        break;
+                    case "password":
+                        user.setPassword(EngagementParser.readString(reader));
+                        break;
+                    case "extras":
+                        user.setExtras(readStringMap(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse user: " + e.getMessage());
+        }
+
+        require(user.getEmail(), "email");
+        require(user.getToken(), "token");
+
+        return user;
+    }
+
+    public static ClaimedReward readClaimedReward(String json) throws JSONException {
+        ClaimedReward reward = new ClaimedReward();
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "title":
+                        reward.setTitle(EngagementParser.readString(reader));
+                        break;
+                    case "img":
+                        reward.setImg(EngagementParser.readString(reader));
+                        break;
+                    case "price":
+                        reward.setPrice(EngagementParser.readString(reader));
+                        break;
+                    case "redemptionInstructions":
+                        reward.setRedemptionInstructions(EngagementParser.readString(reader));
+                        break;
+                    case "additionalInfo":
+                        List<String> info = readStringList(reader);
+                        if (!info.isEmpty()) {
+                            reward.setAdditionalInfo(info);
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse claimed reward: " + e.getMessage());
+        }
+
+        require(reward.getTitle(), "title");
+        require(reward.getImg(), "img");
+        require(reward.getPrice(), "price");
+
+        return reward;
+    }
+
+    public static RMSData readRMSData(String json) throws JSONException {
+        RMSData data = new RMSData().setWidth(-1).setHeight(-1).setTop(-1).setLeft(-1);
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "width":
+                        data.setWidth(readDouble(reader));
+                        break;
+                    case "height":
+                        data.setHeight(readDouble(reader));
+                        break;
+                    case "top":
+                        data.setTop(readDouble(reader));
+                        break;
+                    case "left":
+                        data.setLeft(readDouble(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            throw new JSONException("Unable to parse RMS data: " + e.getMessage());
+        }
+
+        return data;
+    }
+
+    static void string(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\u2028':
+                case '\u2029':
+                    out.append(String.format("\\u%04x", (int) c));
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        return out;
+    }
+
+    private static String release(StringBuilder out) {
+        String json = out.toString();
+        if (out.capacity() > MAX_BUFFER_CAPACITY) {
+            BUFFER.remove();
+        }
+        return json;
+    }
+
+    private static StringBuilder name(StringBuilder out, boolean first, String name) {
+        if (!first) {
+            out.append(',');
+        }
+        string(out, name);
+        return out.append(':');
+    }
+
+    /**
+     * Writes string field unless value is {@code null}.
+     * @return is nothing written yet into current object.
+     */
+    private static boolean field(StringBuilder out, boolean first, String name, String value) {
+        if (value == null) {
+            return first;
+        }
+
+        string(name(out, first, name), value);
+        return false;
+    }
+
+    private static double readDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return -1;
+        }
+        return reader.nextDouble();
+    }
+
+    private static Map<String, String> readStringMap(JsonReader reader) throws IOException {
+        Map<String, String> map = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            map.put(key, EngagementParser.readString(reader));
+        }
+        reader.endObject();
+        return map;
+    }
+
+    private static List<String> readStringList(JsonReader reader) throws IOException {
+        List<String> list = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            list.add(EngagementParser.readString(reader));
+        }
+        reader.endArray();
+        return list;
+    }
+
+    private static void require(String value, String name) throws JSONException {
+        if (value == null) {
+            throw new JSONException("No value for " + name);
+        }
+    }
+}
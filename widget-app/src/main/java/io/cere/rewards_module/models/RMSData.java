@@ -1,7 +1,6 @@
 package io.cere.rewards_module.models;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class RMSData {
     private double width;
@@ -46,14 +45,6 @@ public class RMSData {
     }
 
     public static RMSData fromJSON(String json) throws JSONException {
-        RMSData data = new RMSData();
-
-        JSONObject jsonObject = new JSONObject(json);
-        data.setWidth(jsonObject.has("width") ? jsonObject.getDouble("width") : -1);
-        data.setHeight(jsonObject.has("height") ? jsonObject.getDouble("height") : -1);
-        data.setTop(jsonObject.has("top") ? jsonObject.getDouble("top") : -1);
-        data.setLeft(jsonObject.has("left") ? jsonObject.getDouble("left") : -1);
-
-        return data;
+        return JsonCodec.readRMSData(json);
     }
 }
@@ -1,7 +1,6 @@
 package io.cere.rewards_module.models;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class SocialTask {
     private int id;
@@ -17,11 +16,6 @@ public class SocialTask {
     }
 
     public static SocialTask fromJson(String json) throws JSONException {
-        SocialTask st = new SocialTask();
-
-        JSONObject jsonObject = new JSONObject(json);
-        st.setId(jsonObject.has("id") ? Integer.parseInt(jsonObject.getString("id")) : 0);
-
-        return st;
+        return EngagementParser.parseSocialTask(json);
     }
 }
@@ -4,8 +4,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 public class User {
@@ -84,16 +82,7 @@ public class User {
     }
 
     public static User fromJson(String json) throws JSONException {
-        User user = new User();
-
-        JSONObject jsonObject = new JSONObject(json);
-        user.setId(jsonObject.optString("id"));
-        user.setEmail(jsonObject.getString("email"));
-        user.setToken(jsonObject.getString("token"));
-        user.setPassword(jsonObject.optString("password"));
-        user.setExtras(prepareExtras(jsonObject));
-
-        return user;
+        return JsonCodec.readUser(json);
     }
 
     @Override
@@ -104,21 +93,4 @@ public class User {
                 ", extras=" + getExtras() +
                 "}";
     }
-
-    private static Map<String, String> prepareExtras(JSONObject jsonObject) throws JSONException {
-        Map<String, String> extras = Collections.EMPTY_MAP;
-
-        if (jsonObject.has("extras")) {
-            JSONObject extrasJson = jsonObject.getJSONObject("extras");
-            extras = new HashMap<>();
-
-            Iterator<String> iterator = extrasJson.keys();
-            while (iterator.hasNext()) {
-                String key = iterator.next();
-                extras.put(key, extrasJson.getString(key));
-            }
-        }
-
-        return extras;
-    }
 }
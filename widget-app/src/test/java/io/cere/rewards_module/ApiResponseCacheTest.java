@@ -0,0 +1,181 @@
+package io.cere.rewards_module;
+
+import android.os.Build;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class ApiResponseCacheTest {
+
+    private MockWebServer server;
+    private ApiResponseCache cache;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        url = server.url("/api/campaigns").toString();
+        cache = new ApiResponseCache(server.url("/api").toString());
+        CookieManager.getInstance().removeAllCookies(null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void servesFreshResponseWithValidatorFromMemory() throws Exception {
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("ETag", "\"v1\""));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        assertEquals("[1]", body(cache.get(url, null)));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.stats().getHits());
+    }
+
+    @Test
+    public void neverCachesResponseWithoutValidatorOrLifetime() throws Exception {
+        server.enqueue(new MockResponse().setBody("[1]"));
+        server.enqueue(new MockResponse().setBody("[2]"));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        assertEquals("[2]", body(cache.get(url, null)));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    public void revalidatesExpiredResponseWithEtag() throws Exception {
+        cache.setTtl(0, 0);
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        assertEquals("[1]", body(cache.get(url, null)));
+
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+        assertEquals(1, cache.stats().getRevalidations());
+    }
+
+    @Test
+    public void neverServesNoCacheResponseStale() throws Exception {
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("ETag", "\"v1\"").setHeader("Cache-Control", "max-age=60, no-cache"));
+        server.enqueue(new MockResponse().setBody("[2]").setHeader("ETag", "\"v2\""));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        assertEquals("[2]", body(cache.get(url, null)));
+
+        assertEquals(0, cache.stats().getStaleHits());
+    }
+
+    @Test
+    public void neverServesMustRevalidateResponseStale() throws Exception {
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("ETag", "\"v1\"").setHeader("Cache-Control", "max-age=0, must-revalidate"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        assertEquals("[1]", body(cache.get(url, null)));
+
+        assertEquals(0, cache.stats().getStaleHits());
+        assertEquals(1, cache.stats().getRevalidations());
+    }
+
+    @Test
+    public void servesStaleForStaleWhileRevalidateOfResponse() throws Exception {
+        cache.setTtl(0, 0);
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("Cache-Control", "max-age=0, stale-while-revalidate=60"));
+        server.enqueue(new MockResponse().setBody("[2]").setHeader("Cache-Control", "max-age=0, stale-while-revalidate=60"));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        assertEquals("[1]", body(cache.get(url, null)));
+
+        assertEquals(1, cache.stats().getStaleHits());
+    }
+
+    @Test
+    public void keepsResponsesApartByVaryHeaders() throws Exception {
+        server.enqueue(new MockResponse().setBody("en").setHeader("ETag", "\"en\"").setHeader("Vary", "Accept-Language"));
+        server.enqueue(new MockResponse().setBody("de").setHeader("ETag", "\"de\"").setHeader("Vary", "Accept-Language"));
+
+        assertEquals("en", body(cache.get(url, headers("Accept-Language", "en"))));
+        assertEquals("de", body(cache.get(url, headers("Accept-Language", "de"))));
+        assertEquals("de", body(cache.get(url, headers("Accept-Language", "de"))));
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void keepsResponsesApartByCookies() throws Exception {
+        server.enqueue(new MockResponse().setBody("first").setHeader("ETag", "\"1\""));
+        server.enqueue(new MockResponse().setBody("second").setHeader("ETag", "\"2\""));
+
+        assertEquals("first", body(cache.get(url, null)));
+        CookieManager.getInstance().setCookie(url, "session=2");
+        assertEquals("second", body(cache.get(url, null)));
+
+        server.takeRequest();
+        assertEquals("session=2", server.takeRequest().getHeader("Cookie"));
+    }
+
+    @Test
+    public void storesEverySetCookieAndNeverCachesThem() throws Exception {
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("ETag", "\"v1\"")
+                .addHeader("Set-Cookie", "a=1").addHeader("Set-Cookie", "b=2"));
+        server.enqueue(new MockResponse().setBody("[2]").setHeader("ETag", "\"v2\""));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        String cookies = CookieManager.getInstance().getCookie(url);
+        assertTrue(cookies, cookies.contains("a=1") && cookies.contains("b=2"));
+
+        assertEquals("[2]", body(cache.get(url, null)));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void dropsResponsesOfApiWhenItIsModified() throws Exception {
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("Cache-Control", "max-age=60"));
+        server.enqueue(new MockResponse().setBody("[2]").setHeader("Cache-Control", "max-age=60"));
+
+        assertEquals("[1]", body(cache.get(url, null)));
+        cache.invalidate(server.url("/api/campaigns/1/claim").toString());
+        assertEquals("[2]", body(cache.get(url, null)));
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private static Map<String, String> headers(String name, String value) {
+        return new HashMap<>(Collections.singletonMap(name, value));
+    }
+
+    private static String body(WebResourceResponse response) throws IOException {
+        assertNotNull(response);
+        return new String(Http.readFully(response.getData()), "UTF-8");
+    }
+}
@@ -0,0 +1,74 @@
+package io.cere.rewards_module;
+
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Map;
+
+import io.cere.rewards_module.models.Engagement;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class EngagementClientTest {
+
+    private static final String ENGAGEMENTS = "{\"home\": {\"engagement_id\": 7, \"placement_name\": \"home\", "
+            + "\"reward_items\": [], \"social_tasks\": []}}";
+
+    private MockWebServer server;
+    private EngagementClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new EngagementClient(server.url("/v1/engagements").toString(), "42", Env.STAGE, "2.2.1");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void loadsEngagementsOfApp() throws Exception {
+        server.enqueue(new MockResponse().setBody(ENGAGEMENTS));
+
+        Map<String, Engagement> engagements = client.fetch();
+
+        assertEquals(7, engagements.get("home").getId());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/v1/engagements?appId=42&platform=android&v=2.2.1&env=stage", request.getPath());
+    }
+
+    @Test
+    public void revalidatesLoadedEngagements() throws Exception {
+        server.enqueue(new MockResponse().setBody(ENGAGEMENTS).setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        client.fetch();
+        assertNull(client.fetch());
+
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test(expected = IOException.class)
+    public void failsOnUnexpectedResponse() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        client.fetch();
+    }
+}
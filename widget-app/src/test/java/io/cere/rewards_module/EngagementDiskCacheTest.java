@@ -0,0 +1,95 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+import android.os.Build;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import io.cere.rewards_module.models.Engagement;
+import io.cere.rewards_module.models.RewardItem;
+import io.cere.rewards_module.models.SocialTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class EngagementDiskCacheTest {
+
+    private static final long TTL = 60_000;
+
+    private Context context;
+    private EngagementDiskCache cache;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        cache = new EngagementDiskCache(context, "42", Env.STAGE);
+    }
+
+    @Test
+    public void readsWrittenEngagements() {
+        cache.write(Collections.singletonMap("home", engagement()));
+
+        Map<String, Engagement> engagements = cache.read(TTL);
+
+        Engagement engagement = engagements.get("home");
+        assertEquals(7, engagement.getId());
+        assertEquals("https://example.com/a.png", engagement.getRewardItems().get(0).getParams().get(0).get("image"));
+        assertEquals(3, engagement.getSocialTasks().get(0).getId());
+    }
+
+    @Test
+    public void dropsFileWithCorruptedCount() throws IOException {
+        File file = file();
+        file.getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(1);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertNull(cache.read(TTL));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void dropsTruncatedFile() throws IOException {
+        cache.write(Collections.singletonMap("home", engagement()));
+        File file = file();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 6);
+        }
+
+        assertNull(cache.read(TTL));
+        assertFalse(file.exists());
+    }
+
+    private File file() {
+        return new File(new File(context.getFilesDir(), "engagements"), "stage_" + Util.sha1("42"));
+    }
+
+    private static Engagement engagement() {
+        RewardItem item = new RewardItem().setId(5)
+                .setParams(Collections.singletonList(Collections.singletonMap("image", "https://example.com/a.png")));
+        return new Engagement().setId(7).setCampaignId(1).setPlacementId(2)
+                .setPlacementName("home").setKey("key")
+                .setRewardItems(Arrays.asList(item))
+                .setSocialTasks(Collections.singletonList(new SocialTask().setId(3)));
+    }
+}
@@ -0,0 +1,202 @@
+package io.cere.rewards_module;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SecureKeyStoreTest {
+
+    private static final SecureKeyStore.Base64Codec BASE64 = new SecureKeyStore.Base64Codec() {
+        @Override
+        public String encode(byte[] data) {
+            return Base64.getEncoder().encodeToString(data);
+        }
+
+        @Override
+        public byte[] decode(String data) {
+            return Base64.getDecoder().decode(data);
+        }
+    };
+
+    private MemoryStorage storage;
+    private SecretKey key;
+
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        storage = new MemoryStorage();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        key = generator.generateKey();
+    }
+
+    @Test
+    public void storesValuesEncrypted() throws GeneralSecurityException {
+        SecureKeyStore store = newStore();
+
+        store.put("mnemonic", "abandon ability able");
+
+        assertNull(storage.getString("mnemonic", null));
+        String stored = storage.getString("secure:mnemonic", null);
+        assertNotNull(stored);
+        assertFalse(stored.contains("abandon"));
+        assertEquals("abandon ability able", store.get("mnemonic"));
+    }
+
+    @Test
+    public void decryptsValuesStoredInPreviousSession() throws GeneralSecurityException {
+        newStore().put("pk", "secret");
+
+        assertEquals("secret", newStore().get("pk"));
+    }
+
+    @Test
+    public void removesValues() throws GeneralSecurityException {
+        SecureKeyStore store = newStore();
+        store.put("salt", "pepper");
+
+        store.remove("salt");
+
+        assertNull(store.get("salt"));
+        assertNull(storage.getString("secure:salt", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsKeysWhichAreNotSecure() throws GeneralSecurityException {
+        newStore().put("email", "user@example.com");
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void rejectsTamperedValues() throws GeneralSecurityException {
+        newStore().put("password", "secret");
+        byte[] stored = BASE64.decode(storage.getString("secure:password", null));
+        stored[stored.length - 1] ^= 1;
+        storage.putString("secure:password", BASE64.encode(stored));
+
+        newStore().get("password");
+    }
+
+    @Test
+    public void ignoresPlaintextStoredUnderBareName() throws GeneralSecurityException {
+        storage.putString("pk", "plaintext");
+
+        assertNull(newStore().get("pk"));
+    }
+
+    @Test
+    public void encryptsLegacyValuesOnce() throws GeneralSecurityException {
+        MemoryStorage legacy = new MemoryStorage();
+        legacy.putString("mnemonic", "abandon ability able");
+        legacy.putString("email", "user@example.com");
+
+        SecureKeyStore store = new SecureKeyStore(storage, legacy, () -> key, BASE64);
+
+        assertEquals("abandon ability able", store.get("mnemonic"));
+        assertNull(legacy.getString("mnemonic", null));
+        assertEquals("user@example.com", legacy.getString("email", null));
+        assertEquals("abandon ability able", newStore().get("mnemonic"));
+        assertFalse(storage.getString("secure:mnemonic", null).contains("abandon"));
+    }
+
+    @Test
+    public void keepsEncryptedValueOverLegacyOne() throws GeneralSecurityException {
+        newStore().put("salt", "new");
+        MemoryStorage legacy = new MemoryStorage();
+        legacy.putString("salt", "old");
+
+        SecureKeyStore store = new SecureKeyStore(storage, legacy, () -> key, BASE64);
+
+        assertEquals("new", store.get("salt"));
+        assertNull(legacy.getString("salt", null));
+    }
+
+    @Test
+    public void derivesPbkdf2Keys() throws GeneralSecurityException {
+        // RFC 6070 test vector
+        byte[] derived = newStore().deriveKey("password", "salt".getBytes(), 1, 160);
+
+        assertEquals("0c60c80f961f0e71f3a9b524af6012062fe037a6", Util.toHex(derived));
+    }
+
+    @Test
+    public void returnsCopiesOfCachedDerivedKeys() throws GeneralSecurityException {
+        SecureKeyStore store = newStore();
+        byte[] first = store.deriveKey("password", "salt".getBytes(), 2, 160);
+        first[0] ^= 1;
+
+        byte[] second = store.deriveKey("password", "salt".getBytes(), 2, 160);
+
+        assertEquals("ea6c014dc72d6f8ccd1ed92ace1d41f0d8de8957", Util.toHex(second));
+    }
+
+    @Test
+    public void clearsSessionWhileKeysAreDerived() throws Exception {
+        SecureKeyStore store = newStore();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String password = "password" + (i % 20);
+                results.add(executor.submit(() -> store.deriveKey(password, "salt".getBytes(), 1, 128)));
+                if (i % 10 == 0) {
+                    executor.submit(store::clearSession);
+                }
+            }
+
+            for (Future<byte[]> result : results) {
+                assertEquals(16, result.get().length);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void softwareKeyProviderKeepsItsKey() throws GeneralSecurityException {
+        SecretKey generated = new SecureKeyStore.SoftwareKeyProvider(storage, BASE64).getKey();
+        SecretKey restored = new SecureKeyStore.SoftwareKeyProvider(storage, BASE64).getKey();
+
+        assertArrayEquals(generated.getEncoded(), restored.getEncoded());
+    }
+
+    private SecureKeyStore newStore() {
+        return new SecureKeyStore(storage, () -> key, BASE64);
+    }
+
+    private static class MemoryStorage implements SecureKeyStore.Storage {
+        private final Map<String, String> values = new HashMap<>();
+
+        @Override
+        public String getString(String key, String defaultValue) {
+            String value = values.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public void putString(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            values.remove(key);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.cere.rewards_module;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+
+public class WalletCryptoTest {
+
+    private static final String BIP32_SEED = "000102030405060708090a0b0c0d0e0f";
+
+    @Test
+    public void convertsMnemonicToSeed() throws GeneralSecurityException {
+        // BIP-39 test vector of TREZOR
+        byte[] seed = WalletCrypto.mnemonicToSeed("abandon abandon abandon abandon abandon abandon "
+                + "abandon abandon abandon abandon abandon about", "TREZOR");
+
+        assertEquals("c55257c360c07c72029aebc1b53c05ed0362ada38ead3e3e9efa3708e5349553"
+                + "1f09a6987599d18264c1e1c92f2cf141630c7a3c4ab7c81b2f001698e7463b04", Util.toHex(seed));
+    }
+
+    @Test
+    public void derivesMasterKey() throws GeneralSecurityException {
+        assertKeys("m", "e8f32e723decf4051aefac8e2c93c9c5b214313817cdb01a1494b917c8436b35",
+                "0339a36013301597daef41fbe593a02cc513d0b55527ec2df1050e2e8ff49c85c2");
+    }
+
+    @Test
+    public void derivesHardenedChild() throws GeneralSecurityException {
+        assertKeys("m/0'", "edb2e14f9ee77d26dd93b4ecede8d16ed408ce149b6cd80b0715a2d911a0afea",
+                "035a784662a4a20a65bf6aab9ae98a6c068a81c52e4b032c0fb5400c706cfccc56");
+    }
+
+    @Test
+    public void derivesNormalChild() throws GeneralSecurityException {
+        assertKeys("m/0'/1", "3c6cb8d0f6a264c91ea8b5030fadaa8e538b020f0a387421a12de9319dc93368",
+                "03501e454bf00751f24b1b489aa925215d66af2234e3891c3b21a52bedb3cd711c");
+    }
+
+    @Test
+    public void derivesDeepPath() throws GeneralSecurityException {
+        assertKeys("m/0h/1/2h/2/1000000000", "471b76e389e528d6de6d816857e012c5455051cad6660850e58372a6c3e6e7c8",
+                "022a471424da5e657499d1ff51cb43c47481a03b1e77f951fe64cec9f5a48f7011");
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void rejectsInvalidPath() throws GeneralSecurityException {
+        WalletCrypto.derivePrivateKey(Util.fromHex(BIP32_SEED), "0/1");
+    }
+
+    @Test
+    public void returnsUncompressedPublicKey() throws GeneralSecurityException {
+        assertEquals("0479be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798"
+                        + "483ada7726a3c4655da4fbfc0e1108a8fd17b448a68554199c47d08ffb10d4b8",
+                Util.toHex(WalletCrypto.publicKey(key(1), false)));
+    }
+
+    @Test
+    public void signsDeterministically() throws Exception {
+        // RFC 6979 vector for secp256k1 with SHA-256, low s
+        byte[] signature = WalletCrypto.sign(key(1), sha256("Satoshi Nakamoto"));
+
+        assertEquals("934b1ea10a4b3c1757e2b0c017d0b6143ce3c9a7e6a4a49860d7a6ab210ee3d8", Util.toHex(signature).substring(0, 64));
+        assertEquals("2442ce9d2b916064108014783e923ec36b49743e2ffa1c4496f01a512aafd9e5", Util.toHex(signature).substring(64, 128));
+    }
+
+    @Test
+    public void signsWithLargeKey() throws Exception {
+        byte[] signature = WalletCrypto.sign(key(1), sha256("All those moments will be lost in time, like tears in rain. Time to die..."));
+
+        assertEquals("8600dbd41e348fe5c9465ab92d23e3db8b98b873beecd930736488696438cb6b", Util.toHex(signature).substring(0, 64));
+        assertEquals("547fe64427496db33bf66019dacbf0039c04199abb0122918601db38a72cfc21", Util.toHex(signature).substring(64, 128));
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void rejectsKeyOutOfRange() throws GeneralSecurityException {
+        WalletCrypto.publicKey(new byte[32], true);
+    }
+
+    private static void assertKeys(String path, String privateKey, String publicKey) throws GeneralSecurityException {
+        byte[] derived = WalletCrypto.derivePrivateKey(Util.fromHex(BIP32_SEED), path);
+
+        assertEquals(privateKey, Util.toHex(derived));
+        assertEquals(publicKey, Util.toHex(WalletCrypto.publicKey(derived, true)));
+    }
+
+    private static byte[] key(long value) {
+        byte[] bytes = BigInteger.valueOf(value).toByteArray();
+        byte[] key = new byte[32];
+        System.arraycopy(bytes, 0, key, 32 - bytes.length, bytes.length);
+        return key;
+    }
+
+    private static byte[] sha256(String message) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(message.getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,82 @@
+package io.cere.rewards_module;
+
+import android.os.Build;
+import android.webkit.WebResourceResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class WidgetBundleCacheTest {
+
+    private MockWebServer server;
+    private File root;
+    private WidgetBundleCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        root = new File(RuntimeEnvironment.application.getCacheDir(), "widget_bundle_test");
+        cache = new WidgetBundleCache(root, server.url("/").toString(), "1.0.0");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        Util.deleteRecursively(root);
+    }
+
+    @Test
+    public void servesStatusAndHeadersOfOriginFromDisk() throws Exception {
+        String url = server.url("/static/main.js").toString();
+        server.enqueue(new MockResponse().setBody("main()")
+                .setHeader("Content-Type", "application/javascript; charset=utf-8")
+                .setHeader("Access-Control-Allow-Origin", "*")
+                .setHeader("Cache-Control", "max-age=600")
+                .setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("main()", body(cache.get(url)));
+
+        WebResourceResponse cached = cache.get(url);
+        assertEquals("main()", body(cached));
+        assertEquals(200, cached.getStatusCode());
+        assertEquals("application/javascript", cached.getMimeType());
+        assertEquals("utf-8", cached.getEncoding());
+        assertEquals("*", cached.getResponseHeaders().get("Access-Control-Allow-Origin"));
+        assertEquals("max-age=600", cached.getResponseHeaders().get("Cache-Control"));
+    }
+
+    @Test
+    public void passesFailedResponseThroughWithoutFetchingAgain() throws Exception {
+        String url = server.url("/static/missing.js").toString();
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("missing"));
+
+        WebResourceResponse response = cache.get(url);
+
+        assertEquals("missing", body(response));
+        assertEquals(404, response.getStatusCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private static String body(WebResourceResponse response) throws IOException {
+        assertNotNull(response);
+        return new String(Http.readFully(response.getData()), "UTF-8");
+    }
+}
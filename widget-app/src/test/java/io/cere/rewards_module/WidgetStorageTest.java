@@ -0,0 +1,72 @@
+package io.cere.rewards_module;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class WidgetStorageTest {
+
+    private Context context;
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        new File(context.getFilesDir(), "widget_storage.log").delete();
+        prefs = context.getSharedPreferences(RewardsModule.KEY_STORAGE, Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void movesPlainKeysFromSharedPreferencesOnce() throws InterruptedException {
+        prefs.edit().putString("email", "user@example.com").putString("pk", "secret").commit();
+
+        WidgetStorage storage = new WidgetStorage(context);
+        assertEquals("user@example.com", storage.getString("email", null));
+        assertNull(storage.getString("pk", null));
+        flush(storage);
+
+        assertFalse(prefs.contains("email"));
+        assertTrue(prefs.contains("pk"));
+
+        storage.remove("email");
+        flush(storage);
+        assertNull(new WidgetStorage(context).getString("email", null));
+    }
+
+    @Test
+    public void dropsPlaintextSecretsOfPreviousVersion() throws InterruptedException {
+        WidgetStorage storage = new WidgetStorage(context);
+        storage.putString("mnemonic", "abandon ability able");
+        storage.putString("token", "token");
+        flush(storage);
+
+        WidgetStorage restored = new WidgetStorage(context);
+        assertNull(restored.getString("mnemonic", null));
+        assertEquals("token", restored.getString("token", null));
+    }
+
+    private static void flush(WidgetStorage storage) throws InterruptedException {
+        CountDownLatch flushed = new CountDownLatch(1);
+        storage.flush(flushed::countDown);
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+    }
+}